@@ -0,0 +1,93 @@
+package org.elshift.benchmarks;
+
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import org.elshift.commands.CommandInvokers;
+import org.elshift.modules.Module;
+import org.elshift.util.ParsedTextCommand;
+import org.elshift.util.PrefixTrie;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares dispatching a command through {@link Method#invoke} with the invokers compiled by {@link CommandInvokers}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandInvokeBenchmark {
+    /**
+     * A module whose commands only hand their arguments to a blackhole, so that dispatch is all that is measured.
+     */
+    public static class BenchmarkModule implements Module {
+        private Blackhole blackhole;
+
+        public void slash(SlashCommandInteractionEvent event, String query, Integer count) {
+            blackhole.consume(query);
+            blackhole.consume(count);
+        }
+
+        public void text(MessageReceivedEvent event, ParsedTextCommand parsedText) {
+            blackhole.consume(parsedText);
+        }
+
+        @Override
+        public String getName() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getHelpMessage() {
+            return "";
+        }
+    }
+
+    private final BenchmarkModule module = new BenchmarkModule();
+    private Method slashMethod;
+    private Method textMethod;
+    private CommandInvokers.SlashInvoker slashInvoker;
+    private CommandInvokers.TextInvoker textInvoker;
+    private Object[] slashArguments;
+    private ParsedTextCommand parsedText;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws Exception {
+        module.blackhole = blackhole;
+        slashMethod = BenchmarkModule.class.getMethod(
+                "slash", SlashCommandInteractionEvent.class, String.class, Integer.class);
+        textMethod = BenchmarkModule.class.getMethod("text", MessageReceivedEvent.class, ParsedTextCommand.class);
+        slashInvoker = CommandInvokers.compileSlash(module, slashMethod);
+        textInvoker = CommandInvokers.compileText(module, textMethod);
+
+        // Events are never touched by the commands, so they can be left out
+        slashArguments = new Object[]{null, "sakuga", 42};
+        parsedText = ParsedTextCommand.parsePrefixed("!s sakuga 42", PrefixTrie.of(List.of("!")));
+    }
+
+    @Benchmark
+    public void slashReflective() throws Exception {
+        slashMethod.invoke(module, slashArguments);
+    }
+
+    @Benchmark
+    public void slashCompiled() throws Exception {
+        slashInvoker.invoke(slashArguments);
+    }
+
+    @Benchmark
+    public void textReflective() throws Exception {
+        textMethod.invoke(module, null, parsedText);
+    }
+
+    @Benchmark
+    public void textCompiled() throws Exception {
+        textInvoker.invoke(null, parsedText);
+    }
+}
@@ -0,0 +1,119 @@
+package org.elshift.benchmarks;
+
+import org.elshift.util.EditDistance;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link EditDistance} with the dynamic program it replaced, scoring one query against every tag in a list
+ * shaped like Sakugabooru's: romanized artist names joined by an underscore, and short English tags.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EditDistanceBenchmark {
+    private static final String[] SYLLABLES = {
+            "ka", "ki", "ku", "ke", "ko", "sa", "shi", "su", "se", "so", "ta", "chi", "tsu", "te", "to",
+            "na", "ni", "nu", "ne", "no", "ha", "hi", "fu", "he", "ho", "ma", "mi", "mu", "me", "mo",
+            "ya", "yu", "yo", "ra", "ri", "ru", "re", "ro", "wa", "n", "ga", "go", "da", "do", "ba", "bu"
+    };
+    private static final String[] WORDS = {
+            "effects", "smoke", "fire", "explosions", "debris", "liquid", "hair", "fabric", "animals", "running",
+            "walk_cycle", "character_acting", "fighting", "mecha", "vehicle", "background_animation", "smears",
+            "impact_frames", "beams", "lightning", "wind", "rain", "dancing", "crowd", "cgi", "presumed", "sports"
+    };
+
+    @Param({"20000"})
+    public int tagCount;
+
+    @Param({"nakamura", "yutaka_nakamra", "efects"})
+    public String query;
+
+    private String[] tags;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        Set<String> generated = new LinkedHashSet<>();
+        while (generated.size() < tagCount) {
+            if (random.nextInt(4) == 0) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                generated.add(random.nextBoolean() ? word : word + "_" + WORDS[random.nextInt(WORDS.length)]);
+            } else {
+                generated.add(name(random) + "_" + name(random));
+            }
+        }
+        tags = generated.toArray(new String[0]);
+    }
+
+    private static String name(Random random) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 2 + random.nextInt(3); i > 0; --i)
+            s.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        return s.toString();
+    }
+
+    @Benchmark
+    public int dynamicProgram() {
+        int best = Integer.MAX_VALUE;
+        for (String tag : tags)
+            best = Math.min(best, dynamicProgram(query, tag));
+        return best;
+    }
+
+    @Benchmark
+    public int bitParallel() {
+        int best = Integer.MAX_VALUE;
+        for (String tag : tags)
+            best = Math.min(best, EditDistance.distance(query, tag));
+        return best;
+    }
+
+    /**
+     * Scores with a bound of 3, as a provider does once it has enough candidates that are at least that close.
+     */
+    @Benchmark
+    public int bitParallelBounded() {
+        int best = Integer.MAX_VALUE;
+        for (String tag : tags)
+            best = Math.min(best, EditDistance.distance(query, tag, 3));
+        return best;
+    }
+
+    /**
+     * The distance that {@code StringAutoCompleteProvider} used before {@link EditDistance}
+     */
+    private static int dynamicProgram(String s1, String s2) {
+        s1 = s1.toLowerCase();
+        s2 = s2.toLowerCase();
+
+        int[] costs = new int[s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) {
+            int lastValue = i;
+            for (int j = 0; j <= s2.length(); j++) {
+                if (i == 0)
+                    costs[j] = j;
+                else {
+                    if (j > 0) {
+                        int newValue = costs[j - 1];
+                        if (s1.charAt(i - 1) != s2.charAt(j - 1))
+                            newValue = Math.min(Math.min(newValue, lastValue),
+                                    costs[j]) + 1;
+                        costs[j - 1] = lastValue;
+                        lastValue = newValue;
+                    }
+                }
+            }
+            if (i > 0)
+                costs[s2.length()] = lastValue;
+        }
+        return costs[s2.length()];
+    }
+}
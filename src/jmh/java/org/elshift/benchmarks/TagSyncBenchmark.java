@@ -0,0 +1,122 @@
+package org.elshift.benchmarks;
+
+import org.elshift.db.Database;
+import org.elshift.modules.impl.sakugabooru.SakugabooruTag;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing a full tag sync through inlined multi-row statements, as the sync did before, with the cached
+ * prepared statement and JDBC batches it uses now. Both write in chunks of 10,000 tags per transaction
+ * and batches of 500, like the sync.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class TagSyncBenchmark {
+    private static final int TRANSACTION_SIZE = 10_000;
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"100000"})
+    public int tagCount;
+
+    // Whether the tags are already stored, so that every row is replaced instead of inserted
+    @Param({"false", "true"})
+    public boolean replacing;
+
+    private List<SakugabooruTag> tags;
+    private Path file;
+    private Database db;
+
+    @Setup(Level.Trial)
+    public void makeTags() {
+        tags = new ArrayList<>(tagCount);
+        for (int i = 1; i <= tagCount; ++i) {
+            SakugabooruTag tag = new SakugabooruTag();
+            tag.id = i;
+            // Some names need quoting, as real ones do
+            tag.name = i % 50 == 0 ? "artist's_name_%d".formatted(i) : "tag_name_%d".formatted(i);
+            tag.count = i * 7 % 10_000;
+            tag.type = i % 5;
+            tag.ambiguous = i % 13 == 0;
+            tags.add(tag);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void openDatabase() throws IOException, SQLException {
+        file = Files.createTempFile("tag-sync-benchmark", ".db");
+        db = new Database("jdbc:sqlite:" + file, null, null);
+        db.seed(SakugabooruTag.class);
+        if (replacing)
+            writeBatched();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeDatabase() throws IOException, SQLException {
+        db.closeIfConnected();
+        for (String suffix : new String[]{"", "-wal", "-shm"})
+            Files.deleteIfExists(Path.of(file + suffix));
+    }
+
+    @Benchmark
+    public void inlinedStatements() throws SQLException {
+        for (List<SakugabooruTag> chunk : split(tags, TRANSACTION_SIZE)) {
+            db.inTransaction(con -> {
+                try (Statement stmt = con.createStatement()) {
+                    for (List<SakugabooruTag> batch : split(chunk, BATCH_SIZE))
+                        stmt.executeUpdate(inlinedUpsert(batch));
+                }
+                return null;
+            });
+        }
+    }
+
+    @Benchmark
+    public void batchedTemplates() throws SQLException {
+        writeBatched();
+    }
+
+    private void writeBatched() throws SQLException {
+        for (List<SakugabooruTag> chunk : split(tags, TRANSACTION_SIZE)) {
+            db.inTransaction(con -> {
+                for (List<SakugabooruTag> batch : split(chunk, BATCH_SIZE)) {
+                    if (!db.updateOrInsertMany(SakugabooruTag.class, batch))
+                        throw new SQLException("Failed to write a batch of tags");
+                }
+                return null;
+            });
+        }
+    }
+
+    private static <T> List<List<T>> split(List<T> list, int size) {
+        List<List<T>> parts = new ArrayList<>();
+        for (int start = 0; start < list.size(); start += size)
+            parts.add(list.subList(start, Math.min(start + size, list.size())));
+        return parts;
+    }
+
+    /**
+     * The statement the sync used to build for each batch, with every value inlined as an SQL literal
+     */
+    private static String inlinedUpsert(List<SakugabooruTag> batch) {
+        StringJoiner rows = new StringJoiner(", ");
+        for (SakugabooruTag tag : batch) {
+            rows.add("(%d, %s, %d, %d, %d)".formatted(
+                    tag.id, "'" + tag.name.replace("'", "''") + "'", tag.count, tag.type, tag.ambiguous ? 1 : 0));
+        }
+        return "INSERT OR REPLACE INTO SakugabooruTag (id, name, count, type, ambiguous) VALUES " + rows;
+    }
+}
@@ -10,11 +10,15 @@ import org.elshift.commands.CommandBuilder;
 import org.elshift.commands.CommandHandler;
 import org.elshift.config.Config;
 import org.elshift.modules.Module;
+import org.elshift.modules.ModuleIndex;
+import org.elshift.modules.ModuleLifecycle;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -24,6 +28,7 @@ public class HelloBot extends ListenerAdapter {
     private JDA jda;
     private CommandHandler commandHandler;
     private final List<Module> activeModules = new ArrayList<>();
+    private final ModuleLifecycle moduleLifecycle = new ModuleLifecycle();
 
     public void createBot(String[] args, String token) {
         try {
@@ -32,7 +37,11 @@ public class HelloBot extends ListenerAdapter {
 
             loadModules(jdaBuilder, cmdBuilder);
 
-            commandHandler = new CommandHandler(cmdBuilder.build());
+            commandHandler = new CommandHandler(cmdBuilder.build(), moduleLifecycle);
+
+            // Warm up in the background; the bot goes online without waiting for slow modules.
+            // Modules start only now, so that they never touch the database while the handler seeds it.
+            moduleLifecycle.startAll(activeModules);
             jdaBuilder.addEventListeners(this, commandHandler);
 
             String activity = Config.get().activity();
@@ -46,23 +55,17 @@ public class HelloBot extends ListenerAdapter {
     }
 
     private void loadModules(JDABuilder jdaBuilder, CommandBuilder cmdBuilder) throws Exception {
-        List<ClassPath.ClassInfo> moduleClasses = ClassPath.from(ClassLoader.getSystemClassLoader())
-                .getTopLevelClassesRecursive("org.elshift.modules")
-                .stream().toList();
+        List<ModuleIndex.Entry> moduleEntries = ModuleIndex.load();
+        if (moduleEntries == null) {
+            logger.warn("Module index not found, scanning the classpath for modules instead");
+            moduleEntries = scanModules();
+        }
 
         Set<String> whitelist = Config.get().whitelist();
         boolean hasWhitelist = whitelist != null && !whitelist.isEmpty();
 
-        for (ClassPath.ClassInfo classInfo : moduleClasses) {
-            Class<?> klass = classInfo.load();
-
-            // Check if it implements Module
-            if (!Module.class.isAssignableFrom(klass))
-                continue;
-
-            if (klass.isInterface())
-                continue;
-
+        for (ModuleIndex.Entry entry : moduleEntries) {
+            Class<?> klass = entry.moduleClass();
             String klassName = klass.getSimpleName();
 
             if (hasWhitelist && !whitelist.contains(klassName))
@@ -70,7 +73,7 @@ public class HelloBot extends ListenerAdapter {
 
             Module moduleInstance = (Module) klass.getDeclaredConstructor().newInstance();
 
-            cmdBuilder.addModule(moduleInstance);
+            cmdBuilder.addModule(moduleInstance, entry.commandMethods());
             logger.debug("Added slash command module: {}", klassName);
 
             if (ListenerAdapter.class.isAssignableFrom(klass)) {
@@ -82,8 +85,33 @@ public class HelloBot extends ListenerAdapter {
         }
     }
 
+    /**
+     * Finds modules by scanning the classpath, for when the compile-time module index is unavailable.
+     */
+    private static List<ModuleIndex.Entry> scanModules() throws IOException {
+        List<ClassPath.ClassInfo> moduleClasses = ClassPath.from(ClassLoader.getSystemClassLoader())
+                .getTopLevelClassesRecursive("org.elshift.modules")
+                .stream().toList();
+
+        List<ModuleIndex.Entry> entries = new ArrayList<>();
+        for (ClassPath.ClassInfo classInfo : moduleClasses) {
+            Class<?> klass = classInfo.load();
+
+            // Check if it implements Module
+            if (!Module.class.isAssignableFrom(klass))
+                continue;
+
+            if (klass.isInterface())
+                continue;
+
+            entries.add(new ModuleIndex.Entry(klass, Arrays.asList(klass.getDeclaredMethods())));
+        }
+        return entries;
+    }
+
     public void shutdownBot() {
         jda.shutdown();
+        moduleLifecycle.stopAll();
         logger.info("Shutting down");
     }
 
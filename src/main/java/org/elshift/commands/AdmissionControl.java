@@ -0,0 +1,102 @@
+package org.elshift.commands;
+
+import net.dv8tion.jda.api.events.Event;
+import net.dv8tion.jda.api.interactions.Interaction;
+import org.elshift.commands.annotations.RunMode;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds how many commands may wait to execute, and decides when a queued command is too late to be worth running.
+ */
+public final class AdmissionControl {
+    private static final RunMode.Mode[] MODES = RunMode.Mode.values();
+
+    private final int[] maxQueued = new int[MODES.length];
+    private final AtomicInteger[] queued = new AtomicInteger[MODES.length];
+    private final LongAdder[] rejected = new LongAdder[MODES.length];
+    private final LongAdder expired = new LongAdder();
+    private final long interactionDeadlineNanos;
+
+    /**
+     * @param maxQueued             Maximum number of queued commands per run mode. Missing modes are unbounded.
+     * @param interactionDeadlineMs Interactions that waited longer than this are dropped instead of executed
+     */
+    public AdmissionControl(@NotNull Map<RunMode.Mode, Integer> maxQueued, long interactionDeadlineMs) {
+        for (RunMode.Mode mode : MODES) {
+            Integer max = maxQueued.get(mode);
+            this.maxQueued[mode.ordinal()] = max == null || max <= 0 ? Integer.MAX_VALUE : max;
+            this.queued[mode.ordinal()] = new AtomicInteger();
+            this.rejected[mode.ordinal()] = new LongAdder();
+        }
+        this.interactionDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(interactionDeadlineMs);
+    }
+
+    /**
+     * Reserves a place in the queue. Every successful call must be followed by {@link #onDequeued(RunMode.Mode)}.
+     *
+     * @return False if the queue is full, and the command should be rejected
+     */
+    public boolean tryEnqueue(@NotNull RunMode.Mode mode) {
+        int i = mode.ordinal();
+        if (queued[i].incrementAndGet() > maxQueued[i]) {
+            queued[i].decrementAndGet();
+            rejected[i].increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Frees the place reserved by {@link #tryEnqueue(RunMode.Mode)}, once the command starts executing.
+     */
+    public void onDequeued(@NotNull RunMode.Mode mode) {
+        queued[mode.ordinal()].decrementAndGet();
+    }
+
+    /**
+     * Interactions are aged from when Discord created them, so that gateway and dispatch delays count
+     * towards the deadline as well as time spent queued. This relies on the host clock being synchronized.
+     *
+     * @param event The event that triggered the command
+     * @return Whether the command can no longer be answered in time, and should be dropped
+     */
+    public boolean hasExpired(@NotNull Event event) {
+        if (!(event instanceof Interaction interaction))
+            return false;
+
+        Duration age = Duration.between(interaction.getTimeCreated(), OffsetDateTime.now());
+        if (age.toNanos() <= interactionDeadlineNanos)
+            return false;
+
+        expired.increment();
+        return true;
+    }
+
+    /**
+     * @return The number of commands currently waiting to execute in this mode
+     */
+    public int getQueuedCount(@NotNull RunMode.Mode mode) {
+        return queued[mode.ordinal()].get();
+    }
+
+    /**
+     * @return The number of commands rejected because the queue of this mode was full
+     */
+    public long getRejectedCount(@NotNull RunMode.Mode mode) {
+        return rejected[mode.ordinal()].sum();
+    }
+
+    /**
+     * @return The number of interactions dropped because they waited past their deadline
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+}
@@ -0,0 +1,355 @@
+package org.elshift.commands;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.IMentionable;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.exceptions.RateLimitedException;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageAction;
+import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
+import net.dv8tion.jda.api.utils.AllowedMentions;
+import net.dv8tion.jda.api.utils.AttachmentOption;
+import org.elshift.util.RestScheduler;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A slash command event that defers its reply if the command has not replied in time.
+ * <br>
+ * Replies are only built up until they are queued. Whichever comes first, the reply or the timer, acknowledges
+ * the interaction. If the timer wins, the reply is sent through the interaction hook instead,
+ * so commands can keep calling {@link #reply(String)} no matter how long they take.
+ * <br>
+ * The timer defers publicly, since it can't know how the command will reply. An ephemeral reply that comes after
+ * it deletes the public placeholder, and is sent as an ephemeral follow-up message instead.
+ */
+public final class AutoDeferringSlashCommandEvent extends SlashCommandInteractionEvent {
+    private static final Logger logger = LoggerFactory.getLogger(AutoDeferringSlashCommandEvent.class);
+
+    private static final int PENDING = 0;
+    private static final int REPLIED = 1;
+    private static final int DEFERRED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private final AtomicBoolean interactionEnded = new AtomicBoolean();
+    private final ScheduledFuture<?> timer;
+
+    /**
+     * @param event    The event to wrap
+     * @param delayMs  How long the command may take to reply before it is deferred
+     * @param executor Runs the timer
+     */
+    public AutoDeferringSlashCommandEvent(@NotNull SlashCommandInteractionEvent event, long delayMs,
+                                          @NotNull ScheduledExecutorService executor) {
+        super(event.getJDA(), event.getResponseNumber(), event.getInteraction());
+        RestScheduler.get().beginInteraction();
+        this.timer = executor.schedule(this::deferNow, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void deferNow() {
+        if (!state.compareAndSet(PENDING, DEFERRED))
+            return;
+
+        endInteraction();
+        logger.debug("Deferring reply to /{}, the command is taking too long", getName());
+        RestScheduler.get().queue(getInteraction().deferReply(), RestScheduler.Priority.INTERACTION, null, null,
+                error -> logger.warn("Failed to defer reply to /{}", getName(), error));
+    }
+
+    /**
+     * Stops the timer, if it has not fired yet.
+     */
+    public void cancelTimer() {
+        timer.cancel(false);
+        endInteraction();
+    }
+
+    private void endInteraction() {
+        if (interactionEnded.compareAndSet(false, true))
+            RestScheduler.get().endInteraction();
+    }
+
+    /**
+     * @return Whether the timer deferred the reply
+     */
+    public boolean wasAutoDeferred() {
+        return state.get() == DEFERRED;
+    }
+
+    @NotNull
+    @Override
+    public ReplyCallbackAction deferReply() {
+        return new DeferrableReply(null);
+    }
+
+    @NotNull
+    @Override
+    public ReplyCallbackAction reply(@NotNull Message message) {
+        // The default implementation needs JDA's own action type, so it can't be built on deferReply() here
+        return new DeferrableReply(message);
+    }
+
+    /**
+     * A reply that records what it is built with, and decides how it is sent once queued: as the reply itself,
+     * or as a follow-up message if the timer deferred the reply first.
+     */
+    private final class DeferrableReply implements ReplyCallbackAction {
+        private record Attachment(InputStream data, String name, AttachmentOption[] options) {
+        }
+
+        private final @Nullable Message message;
+        private final List<MessageEmbed> embeds = new ArrayList<>();
+        private final List<ActionRow> actionRows = new ArrayList<>();
+        private final List<Attachment> attachments = new ArrayList<>();
+        private final List<Consumer<AllowedMentions<?>>> mentions = new ArrayList<>();
+        private @Nullable String content;
+        private boolean tts;
+        private boolean ephemeral;
+        private @Nullable BooleanSupplier check;
+        private long deadline;
+
+        /**
+         * @param message The message to reply with, or null to start from an empty reply
+         */
+        private DeferrableReply(@Nullable Message message) {
+            this.message = message;
+        }
+
+        /**
+         * @return The action that sends this reply, or null if there is nothing left to send
+         */
+        private @Nullable RestAction<InteractionHook> resolve() {
+            if (state.compareAndSet(PENDING, REPLIED))
+                cancelTimer();
+
+            // Replying twice is left for Discord to reject, just like without this wrapper
+            RestAction<InteractionHook> action = state.get() == DEFERRED ? buildFollowUp() : buildReply();
+            if (action == null)
+                return null;
+
+            if (check != null)
+                action = action.setCheck(check);
+            if (deadline > 0)
+                action = action.deadline(deadline);
+            return action;
+        }
+
+        private RestAction<InteractionHook> buildReply() {
+            ReplyCallbackAction action = message != null
+                    ? getInteraction().reply(message)
+                    : getInteraction().deferReply();
+
+            if (content != null)
+                action.setContent(content);
+            if (tts)
+                action.setTTS(true);
+            if (!embeds.isEmpty())
+                action.addEmbeds(embeds);
+            if (!actionRows.isEmpty())
+                action.addActionRows(actionRows.toArray(ActionRow[]::new));
+            for (Attachment attachment : attachments)
+                action.addFile(attachment.data(), attachment.name(), attachment.options());
+            for (Consumer<AllowedMentions<?>> mention : mentions)
+                mention.accept(action);
+            return action.setEphemeral(ephemeral);
+        }
+
+        private @Nullable RestAction<InteractionHook> buildFollowUp() {
+            InteractionHook hook = getHook();
+            boolean hasContent = message != null || content != null || !embeds.isEmpty() || !attachments.isEmpty()
+                    || !actionRows.isEmpty();
+
+            // A request to defer, which the timer already did publicly
+            if (!hasContent) {
+                if (!ephemeral)
+                    return null;
+
+                hook.setEphemeral(true);
+                return hook.deleteOriginal().map(ignored -> hook);
+            }
+
+            WebhookMessageAction<Message> action = message != null
+                    ? hook.sendMessage(message)
+                    : hook.sendMessage(content != null ? content : "");
+
+            if (message != null && content != null)
+                action.setContent(content);
+            if (tts)
+                action.setTTS(true);
+            if (!embeds.isEmpty())
+                action.addEmbeds(embeds);
+            if (!actionRows.isEmpty())
+                action.addActionRows(actionRows.toArray(ActionRow[]::new));
+            for (Attachment attachment : attachments)
+                action.addFile(attachment.data(), attachment.name(), attachment.options());
+            for (Consumer<AllowedMentions<?>> mention : mentions)
+                mention.accept(action);
+
+            // The first follow-up replaces the public placeholder and takes on its visibility,
+            // so an ephemeral reply has to remove the placeholder first
+            if (!ephemeral)
+                return action.map(sent -> hook);
+
+            WebhookMessageAction<Message> ephemeralAction = action.setEphemeral(true);
+            return hook.deleteOriginal()
+                    .flatMap(ignored -> ephemeralAction)
+                    .map(sent -> hook);
+        }
+
+        @NotNull
+        @Override
+        public JDA getJDA() {
+            return AutoDeferringSlashCommandEvent.this.getJDA();
+        }
+
+        /**
+         * Sends the reply through the {@link RestScheduler}, which sends it ahead of any housekeeping.
+         */
+        @Override
+        public void queue(@Nullable Consumer<? super InteractionHook> success,
+                          @Nullable Consumer<? super Throwable> failure) {
+            RestAction<InteractionHook> action = resolve();
+            if (action == null) {
+                Consumer<? super InteractionHook> onSuccess = success != null ? success : RestAction.getDefaultSuccess();
+                onSuccess.accept(getHook());
+                return;
+            }
+
+            RestScheduler.Priority priority = wasAutoDeferred()
+                    ? RestScheduler.Priority.REPLY
+                    : RestScheduler.Priority.INTERACTION;
+            RestScheduler.get().queue(action, priority, null, success, failure);
+        }
+
+        @Override
+        public InteractionHook complete(boolean shouldQueue) throws RateLimitedException {
+            RestAction<InteractionHook> action = resolve();
+            return action == null ? getHook() : action.complete(shouldQueue);
+        }
+
+        @NotNull
+        @Override
+        public CompletableFuture<InteractionHook> submit(boolean shouldQueue) {
+            RestAction<InteractionHook> action = resolve();
+            return action == null ? CompletableFuture.completedFuture(getHook()) : action.submit(shouldQueue);
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction setCheck(@Nullable BooleanSupplier checks) {
+            this.check = checks;
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction timeout(long timeout, @NotNull TimeUnit unit) {
+            return deadline(timeout <= 0 ? 0 : System.currentTimeMillis() + unit.toMillis(timeout));
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction deadline(long timestamp) {
+            this.deadline = timestamp;
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction addEmbeds(@NotNull Collection<? extends MessageEmbed> embeds) {
+            this.embeds.addAll(embeds);
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction addActionRows(@NotNull ActionRow... rows) {
+            Collections.addAll(actionRows, rows);
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction setContent(@Nullable String content) {
+            this.content = content;
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction setTTS(boolean isTTS) {
+            this.tts = isTTS;
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction setEphemeral(boolean ephemeral) {
+            this.ephemeral = ephemeral;
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction addFile(@NotNull InputStream data, @NotNull String name,
+                                           @NotNull AttachmentOption... options) {
+            attachments.add(new Attachment(data, name, options));
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction mentionRepliedUser(boolean mention) {
+            mentions.add(action -> action.mentionRepliedUser(mention));
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction allowedMentions(@Nullable Collection<Message.MentionType> allowedMentions) {
+            mentions.add(action -> action.allowedMentions(allowedMentions));
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction mention(@NotNull IMentionable... mentions) {
+            this.mentions.add(action -> action.mention(mentions));
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction mentionUsers(@NotNull String... userIds) {
+            mentions.add(action -> action.mentionUsers(userIds));
+            return this;
+        }
+
+        @NotNull
+        @Override
+        public ReplyCallbackAction mentionRoles(@NotNull String... roleIds) {
+            mentions.add(action -> action.mentionRoles(roleIds));
+            return this;
+        }
+    }
+}
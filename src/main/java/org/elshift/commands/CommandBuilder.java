@@ -67,7 +67,54 @@ public class CommandBuilder {
         }
     }
 
-    private @NotNull CustomOptionData getParameterOptionData(Module module, @NotNull Parameter parameter) {
+    /**
+     * Resolves how to construct a multiple choice option type, once.
+     */
+    @SuppressWarnings("unchecked")
+    private static MultipleChoiceFactory getMultipleChoiceFactory(Module module, Class<?> paramType)
+            throws ReflectiveOperationException {
+        // Non-static nested classes' constructors require an owning class instance parameter
+        if (paramType.isMemberClass() && (paramType.getModifiers() & Modifier.STATIC) == 0) {
+            Constructor<?> constructor = paramType.getDeclaredConstructor(module.getClass());
+            constructor.setAccessible(true);
+            return () -> (MultipleChoiceOption<Object>) constructor.newInstance(module);
+        }
+
+        Constructor<?> constructor = paramType.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return () -> (MultipleChoiceOption<Object>) constructor.newInstance();
+    }
+
+    /**
+     * Creates the binder that turns the parameter's option into a method argument.
+     */
+    private static @NotNull OptionBinder getParameterBinder(
+            @NotNull Parameter parameter,
+            @NotNull OptionData optionData,
+            @Nullable MultipleChoiceFactory multipleChoiceFactory
+    ) {
+        Class<?> paramType = parameter.getType();
+        OptionBinder.ValueReader reader = OptionBinder.readerFor(optionData.getType());
+        OptionBinder.ValueConverter converter = null;
+
+        if (paramType.isEnum()) {
+            Object[] enumConstants = paramType.getEnumConstants();
+            converter = rawValue -> enumConstants[(int) rawValue];
+        } else if (multipleChoiceFactory != null) {
+            converter = rawValue -> {
+                MultipleChoiceOption<Object> option = multipleChoiceFactory.create();
+                option.setValue(rawValue);
+                return option;
+            };
+        }
+
+        return new OptionBinder(optionData.getName(), reader, converter);
+    }
+
+    private @NotNull CustomOptionData getParameterOptionData(
+            @NotNull Parameter parameter,
+            @Nullable MultipleChoiceFactory multipleChoiceFactory
+    ) {
         Class<?> paramType = parameter.getType();
         OptionType optionType = TYPE_MAP.get(parameter.getType());
 
@@ -79,21 +126,9 @@ public class CommandBuilder {
             for (int i = 0; i < enumConstants.length; i++)
                 choices[i] = new Command.Choice(enumConstants[i].toString(), i);
             optionType = OptionType.INTEGER;
-        } else if (MultipleChoiceOption.class.isAssignableFrom(paramType)) {
+        } else if (multipleChoiceFactory != null) {
             try {
-                MultipleChoiceOption<?> multipleChoice;
-
-                // Non-static nested classes' constructors require an owning class instance parameter
-                if (paramType.isMemberClass() && (paramType.getModifiers() & Modifier.STATIC) == 0) {
-                    Constructor<?> constructor = paramType.getDeclaredConstructor(module.getClass());
-                    constructor.setAccessible(true);
-                    multipleChoice = (MultipleChoiceOption<?>) constructor.newInstance(module);
-                } else {
-                    Constructor<?> constructor = paramType.getDeclaredConstructor();
-                    constructor.setAccessible(true);
-                    multipleChoice = (MultipleChoiceOption<?>) constructor.newInstance();
-                }
-
+                MultipleChoiceOption<?> multipleChoice = multipleChoiceFactory.create();
                 optionType = TYPE_MAP.get(multipleChoice.getType());
                 choices = multipleChoice.getChoices();
             } catch (ReflectiveOperationException e) {
@@ -101,6 +136,13 @@ public class CommandBuilder {
             }
         }
 
+        if (optionType == null) {
+            throw new InvalidParameterException(
+                    "Parameter %s has unsupported option type %s"
+                            .formatted(parameter.getName(), paramType.getName())
+            );
+        }
+
         Option option = parameter.getAnnotation(Option.class);
 
         String name = option.name();
@@ -165,7 +207,7 @@ public class CommandBuilder {
 
         RunMode runMode = method.getAnnotation(RunMode.class);
         commandInfoList.add(
-                new TextCommandMethod(textCommand, module, method, group, runMode)
+                new TextCommandMethod(textCommand, module, method, group, runMode, compileText(module, method))
         );
     }
 
@@ -177,6 +219,7 @@ public class CommandBuilder {
             @Nullable CommandGroup group
     ) {
         List<CustomOptionData> options = new ArrayList<>();
+        List<OptionBinder> binders = new ArrayList<>();
 
         boolean doesHaveCommandContext = false;
         for (int i = 0; i < method.getParameterCount(); i++) {
@@ -200,7 +243,19 @@ public class CommandBuilder {
                 continue;
             }
 
-            options.add(getParameterOptionData(module, parameter));
+            MultipleChoiceFactory multipleChoiceFactory = null;
+            if (MultipleChoiceOption.class.isAssignableFrom(parameter.getType())) {
+                try {
+                    multipleChoiceFactory = getMultipleChoiceFactory(module, parameter.getType());
+                } catch (ReflectiveOperationException e) {
+                    throw new InvalidParameterException(
+                            "Cannot construct multiple choice parameter %s".formatted(parameter.getType().getName()));
+                }
+            }
+
+            CustomOptionData optionData = getParameterOptionData(parameter, multipleChoiceFactory);
+            options.add(optionData);
+            binders.add(getParameterBinder(parameter, optionData, multipleChoiceFactory));
         }
 
         if (!doesHaveCommandContext) {
@@ -214,11 +269,27 @@ public class CommandBuilder {
 
         commandInfoList.add(
                 new SlashCommandMethod(
-                        slashCommand, module, method, group, options, runMode
+                        slashCommand, module, method, group, options, binders, runMode, compileSlash(module, method)
                 )
         );
     }
 
+    private static CommandInvokers.TextInvoker compileText(Module module, Method method) {
+        try {
+            return CommandInvokers.compileText(module, method);
+        } catch (IllegalAccessException e) {
+            throw new InvalidParameterException("Cannot access text command method %s".formatted(method.getName()));
+        }
+    }
+
+    private static CommandInvokers.SlashInvoker compileSlash(Module module, Method method) {
+        try {
+            return CommandInvokers.compileSlash(module, method);
+        } catch (IllegalAccessException e) {
+            throw new InvalidParameterException("Cannot access slash command method %s".formatted(method.getName()));
+        }
+    }
+
     /**
      * Adds all eligible slash commands in a class.
      *
@@ -226,9 +297,20 @@ public class CommandBuilder {
      * @return Self
      */
     public CommandBuilder addModule(@NotNull Module module) {
+        return addModule(module, Arrays.asList(module.getClass().getDeclaredMethods()));
+    }
+
+    /**
+     * Adds the given slash commands of a class, such as those listed by the module index.
+     *
+     * @param module  The module instance
+     * @param methods The module's methods to consider
+     * @return Self
+     */
+    public CommandBuilder addModule(@NotNull Module module, @NotNull Collection<Method> methods) {
         CommandGroup commandGroup = module.getClass().getAnnotation(CommandGroup.class);
 
-        for (Method method : module.getClass().getDeclaredMethods())
+        for (Method method : methods)
             addMethod(module, method, commandGroup);
 
         return this;
@@ -240,4 +322,8 @@ public class CommandBuilder {
     public List<CommandMethod> build() {
         return commandInfoList;
     }
+
+    private interface MultipleChoiceFactory {
+        MultipleChoiceOption<Object> create() throws ReflectiveOperationException;
+    }
 }
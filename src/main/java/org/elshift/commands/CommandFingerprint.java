@@ -0,0 +1,25 @@
+package org.elshift.commands;
+
+import org.elshift.db.annotations.SqlPrimaryKey;
+
+/**
+ * The fingerprint of the slash commands last registered for a guild, and of the application that registered them.
+ */
+public class CommandFingerprint {
+    /**
+     * Guild ID used for commands registered globally
+     */
+    public static final long GLOBAL = 0;
+
+    @SqlPrimaryKey
+    public Long guildId;
+    public String fingerprint;
+
+    public CommandFingerprint() {
+    }
+
+    public CommandFingerprint(long guildId, String fingerprint) {
+        this.guildId = guildId;
+        this.fingerprint = fingerprint;
+    }
+}
@@ -1,31 +1,39 @@
 package org.elshift.commands;
 
+import net.dv8tion.jda.api.entities.Channel;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.events.Event;
+import net.dv8tion.jda.api.events.ReadyEvent;
 import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
 import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
 import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.interactions.AutoCompleteQuery;
+import net.dv8tion.jda.api.interactions.Interaction;
 import net.dv8tion.jda.api.interactions.commands.Command;
-import net.dv8tion.jda.api.interactions.commands.build.Commands;
-import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import net.dv8tion.jda.api.interactions.commands.CommandInteractionPayload;
+import org.elshift.commands.annotations.RateLimit;
 import org.elshift.commands.annotations.RunMode;
+import org.elshift.commands.autocomplete.AutoCompleteCache;
 import org.elshift.config.Config;
+import org.elshift.modules.Module;
+import org.elshift.modules.ModuleLifecycle;
+import org.elshift.util.BoundedExecutor;
+import org.elshift.util.KeyedSerialExecutor;
 import org.elshift.util.ParsedTextCommand;
+import org.elshift.util.PrefixTrie;
+import org.elshift.util.RestScheduler;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Listens for and handles execution of interactions.
@@ -33,106 +41,258 @@ import java.util.concurrent.Executors;
 public class CommandHandler extends ListenerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(CommandHandler.class);
     private final List<CommandMethod> commands;
-
-    private final List<SlashCommandData> slashCommands = new ArrayList<>();
-    private final ExecutorService synchronousExecutor = Executors.newSingleThreadExecutor();
-    private final ExecutorService asynchronousExecutor = Executors.newCachedThreadPool();
+    private final CommandIndex index;
+
+    private final CommandRegistrar registrar;
+    private final ModuleLifecycle moduleLifecycle;
+    private final KeyedSerialExecutor synchronousExecutor;
+    private final Config.SyncScope syncScope;
+    private final ExecutorService asynchronousExecutor;
+    private final Map<Module, BoundedExecutor> limitedExecutors;
+    private final AdmissionControl admissionControl;
+    private final long autoDeferMs;
+    private final ScheduledExecutorService autoDeferTimer;
+    private final AutoCompleteCache autoCompleteCache = new AutoCompleteCache(1024, Duration.ofSeconds(30));
 
     public CommandHandler(List<CommandMethod> commands) {
+        this(commands, new ModuleLifecycle());
+    }
+
+    /**
+     * @param commands        All commands
+     * @param moduleLifecycle Tracks which modules are ready to run commands
+     */
+    public CommandHandler(List<CommandMethod> commands, ModuleLifecycle moduleLifecycle) {
         this.commands = commands;
+        this.moduleLifecycle = moduleLifecycle;
+        this.index = new CommandIndex(commands);
+
+        Config config = Config.get();
+        this.registrar = new CommandRegistrar(commands, config.globalCommands());
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.synchronousExecutor = new KeyedSerialExecutor(Executors.newFixedThreadPool(cores), cores * 16);
+        this.syncScope = config.syncScope();
+        this.admissionControl = new AdmissionControl(config.maxQueuedCommands(), config.interactionDeadlineMs());
+        this.autoDeferMs = config.autoDeferMs();
+        this.autoDeferTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auto-defer-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.asynchronousExecutor = config.virtualThreads()
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+
+        // Cap how many asynchronous commands each module may run at once
+        Map<Module, BoundedExecutor> limited = new HashMap<>();
+        for (CommandMethod cmd : commands) {
+            Integer limit = config.asyncConcurrencyLimits().get(cmd.getModule().getName());
+            if (limit != null && limit > 0 && !limited.containsKey(cmd.getModule()))
+                limited.put(cmd.getModule(), new BoundedExecutor(asynchronousExecutor, limit));
+        }
+        this.limitedExecutors = Map.copyOf(limited);
     }
 
-    private void registerCommandsForGuild(Guild guild) {
-        if (slashCommands.isEmpty()) {
-            for (CommandMethod baseCmd : commands) {
-                if (!(baseCmd instanceof SlashCommandMethod slashMethod))
-                    continue;
+    /**
+     * Attempt to execute a command.
+     */
+    private void handleCommand(Event event, @NotNull CommandMethod cmdMethod) {
+        handleCommand(event, cmdMethod, cmdMethod::invoke);
+    }
 
-                SlashCommandData command = Commands.slash(
-                        slashMethod.getCommand().name(),
-                        slashMethod.getCommand().description()
-                );
+    /**
+     * Attempt to execute a command, using a custom invocation of the command method.
+     */
+    private void handleCommand(Event event, @NotNull CommandMethod cmdMethod, @NotNull CommandInvocation invocation) {
+        Module module = cmdMethod.getModule();
+        if (!moduleLifecycle.isReady(module)) {
+            replyToCommand(event, moduleLifecycle.hasFailed(module)
+                    ? "This feature is unavailable right now."
+                    : "This feature is still warming up, try again in a moment.");
+            return;
+        }
 
-                boolean hasOptions = slashMethod.getOptions() != null && !slashMethod.getOptions().isEmpty();
-                if (hasOptions)
-                    command.addOptions(slashMethod.getOptions());
+        if (!isWithinRateLimits(event, cmdMethod)) {
+            // Text commands are ignored silently, so that replies don't add to the flood
+            if (event instanceof SlashCommandInteractionEvent)
+                replyToCommand(event, "You're using this command too quickly, try again in a moment.");
+            return;
+        }
 
-                slashCommands.add(command);
-            }
+        RunMode.Mode runMode = cmdMethod.getRunMode();
+        if (!admissionControl.tryEnqueue(runMode)) {
+            logger.warn("Too many queued commands, rejecting {}", cmdMethod.getName());
+            // Like rate limits, text commands are shed silently, so that a busy bot doesn't post even more
+            if (event instanceof SlashCommandInteractionEvent)
+                replyToCommand(event, "The bot is busy right now, try again in a moment.");
+            return;
         }
 
-        List<Command> registeredCommands = guild.retrieveCommands().complete();
+        // The timer starts now, so that time spent queued counts towards Discord's deadline
+        AutoDeferringSlashCommandEvent deferring = startAutoDefer(event);
+        Event commandEvent = deferring != null ? deferring : event;
 
-        for (Command command : registeredCommands) {
-            // TODO: support more types of commands
-            if (command.getType() != Command.Type.SLASH)
-                continue;
+        long queuedAt = System.nanoTime();
+        Runnable invoke = () -> {
+            admissionControl.onDequeued(runMode);
+
+            long startedAt = System.nanoTime();
+            CommandStats stats = cmdMethod.getStats();
+            stats.recordQueueWait(startedAt - queuedAt);
+            // A deferred interaction can still be answered, so only drop commands that can no longer reply
+            boolean deferred = deferring != null && deferring.wasAutoDeferred();
+            if (!deferred && admissionControl.hasExpired(event)) {
+                logger.warn("Dropping command {}, it waited past the interaction deadline", cmdMethod.getName());
+                if (deferring != null)
+                    deferring.cancelTimer();
+                return;
+            }
 
-            if (slashCommands.stream().noneMatch(info -> info.getName().equals(command.getName()))) {
-                logger.info("Removing old command: " + command.getName());
-                try {
-                    command.delete().queue();
-                } catch (Exception ignored) {
-                }
+            boolean failed = false;
+            try {
+                invocation.invoke(commandEvent);
+            } catch (Exception e) {
+                failed = true;
+                logger.error("Failed to execute command {}", cmdMethod.getName(), e);
+                replyToCommand(commandEvent, "Failed to execute command! " + e);
+            } finally {
+                // Commands that return without replying don't expect a deferred reply either
+                if (deferring != null)
+                    deferring.cancelTimer();
+                stats.recordExecution(System.nanoTime() - startedAt, failed);
             }
-        }
+        };
 
-        guild.updateCommands().addCommands(slashCommands).queue();
-        logger.info("Registered {} command(s) for guild: {}", slashCommands.size(), guild.getName());
+        if (runMode == RunMode.Mode.Async) {
+            // Commands over their module's limit wait in its queue, rather than on a thread
+            BoundedExecutor limited = limitedExecutors.get(cmdMethod.getModule());
+            (limited != null ? limited : asynchronousExecutor).execute(invoke);
+        } else
+            synchronousExecutor.execute(getSerialKey(event), invoke);
     }
 
-    private void tryRegisterCommandsForGuild(Guild guild) {
-        try {
-            registerCommandsForGuild(guild);
-        } catch (ErrorResponseException e) {
-            logger.warn("Failed to create commands for guild: %s".formatted(guild.getName()));
-        }
+    /**
+     * @return The event wrapped so that its reply is deferred if it takes too long, or null if it isn't a slash command
+     */
+    private AutoDeferringSlashCommandEvent startAutoDefer(Event event) {
+        if (autoDeferMs <= 0 || !(event instanceof SlashCommandInteractionEvent slashEvent))
+            return null;
+
+        return new AutoDeferringSlashCommandEvent(slashEvent, autoDeferMs, autoDeferTimer);
     }
 
     /**
-     * Attempt to execute a command.
+     * @return The key that synchronous commands from this event are ordered by
      */
-    private void handleCommand(Event event, @NotNull CommandMethod cmdMethod) {
-        Runnable invoke = () -> {
-            try {
-                cmdMethod.invoke(event);
-            } catch (Exception e) {
-                logger.error("Failed to execute command {}", cmdMethod.getName(), e);
-                String response = "Failed to execute command! " + e;
+    private long getSerialKey(Event event) {
+        if (syncScope == Config.SyncScope.GUILD)
+            return getGuildOrChannelId(event);
 
-                if (event instanceof SlashCommandInteractionEvent slashEvent)
-                    slashEvent.reply(response).setEphemeral(true).queue();
-                else if (event instanceof MessageReceivedEvent msgEvent)
-                    msgEvent.getMessage().reply(response).queue();
-            }
-        };
+        return getChannelId(event);
+    }
 
-        if (cmdMethod.getRunMode() == RunMode.Mode.Async)
-            asynchronousExecutor.execute(invoke);
-        else
-            synchronousExecutor.execute(invoke);
+    /**
+     * Takes one use from every rate limit of the command, or from none of them if any is exhausted.
+     *
+     * @return False if any limit is exhausted
+     */
+    private static boolean isWithinRateLimits(Event event, CommandMethod cmdMethod) {
+        RateLimiter[] limiters = cmdMethod.getRateLimiters();
+        for (int i = 0; i < limiters.length; ++i) {
+            if (limiters[i].tryAcquire(getRateLimitKey(event, limiters[i])))
+                continue;
+
+            // A rejected command costs nothing, so give back the uses already taken
+            for (int j = 0; j < i; ++j)
+                limiters[j].refund(getRateLimitKey(event, limiters[j]));
+            return false;
+        }
+        return true;
+    }
+
+    private static long getRateLimitKey(Event event, RateLimiter limiter) {
+        return limiter.getScope() == RateLimit.Scope.Guild ? getGuildOrChannelId(event) : getUserId(event);
+    }
+
+    private static long getUserId(Event event) {
+        if (event instanceof Interaction interaction)
+            return interaction.getUser().getIdLong();
+        if (event instanceof MessageReceivedEvent msgEvent)
+            return msgEvent.getAuthor().getIdLong();
+        return 0;
+    }
+
+    private static long getChannelId(Event event) {
+        Channel channel = null;
+        if (event instanceof Interaction interaction)
+            channel = interaction.getChannel();
+        else if (event instanceof MessageReceivedEvent msgEvent)
+            channel = msgEvent.getChannel();
+        return channel == null ? 0 : channel.getIdLong();
+    }
+
+    /**
+     * @return The ID of the event's guild, or of its channel for DMs
+     */
+    private static long getGuildOrChannelId(Event event) {
+        Guild guild = null;
+        if (event instanceof Interaction interaction)
+            guild = interaction.getGuild();
+        else if (event instanceof MessageReceivedEvent msgEvent && msgEvent.isFromGuild())
+            guild = msgEvent.getGuild();
+        return guild == null ? getChannelId(event) : guild.getIdLong();
+    }
+
+    /**
+     * Replies to the command: privately to a slash command, or publicly to a text command's message,
+     * since messages can't be answered privately.
+     */
+    private static void replyToCommand(Event event, String response) {
+        if (event instanceof SlashCommandInteractionEvent slashEvent)
+            slashEvent.reply(response).setEphemeral(true).queue();
+        else if (event instanceof MessageReceivedEvent msgEvent)
+            msgEvent.getMessage().reply(response).queue();
     }
 
     private CommandMethod getCommandForEvent(Object event) {
-        List<CommandMethod> list = commands.stream().filter(info -> info.matchesEvent(event)).toList();
-        if (list.isEmpty())
-            return null;
+        if (event instanceof CommandInteractionPayload interaction)
+            return index.findSlashCommand(interaction.getSubcommandGroup(), interaction.getName());
 
-        return list.get(0);
+        return null;
     }
 
     public List<CommandMethod> getCommands() {
         return commands;
     }
 
+    /**
+     * @return The cache of autocomplete candidates, and its hit rates
+     */
+    public AutoCompleteCache getAutoCompleteCache() {
+        return autoCompleteCache;
+    }
+
+    /**
+     * @return Queue depths and shed counts of this handler
+     */
+    public AdmissionControl getAdmissionControl() {
+        return admissionControl;
+    }
+
+    @Override
+    public void onReady(@NotNull ReadyEvent event) {
+        registrar.registerGlobal(event.getJDA());
+    }
+
     @Override
     public void onGuildReady(@NotNull GuildReadyEvent event) {
-        tryRegisterCommandsForGuild(event.getGuild());
+        registrar.registerForGuild(event.getGuild());
     }
 
     @Override
     public void onGuildJoin(@NotNull GuildJoinEvent event) {
-        tryRegisterCommandsForGuild(event.getGuild());
+        registrar.registerForGuild(event.getGuild());
     }
 
     @Override
@@ -152,6 +312,9 @@ public class CommandHandler extends ListenerAdapter {
         if (!(method instanceof SlashCommandMethod slashMethod))
             return;
 
+        if (!moduleLifecycle.isReady(slashMethod.getModule()))
+            return;
+
         List<CustomOptionData> options = slashMethod.getOptions();
         if (options.isEmpty())
             return;
@@ -173,25 +336,31 @@ public class CommandHandler extends ListenerAdapter {
         if (currentOption.getAutoCompleteProvider() == null)
             return;
 
-        Command.Choice[] candidates = currentOption.getAutoCompleteProvider().getCandidates(query);
+        Command.Choice[] candidates = autoCompleteCache.getCandidates(
+                event.getCommandPath(), currentOption.getAutoCompleteProvider(), query);
         if (candidates == null)
             return;
 
-        event.replyChoices(candidates).queue();
+        RestScheduler.get().queue(event.replyChoices(candidates), RestScheduler.Priority.INTERACTION, null);
     }
 
     @Override
     public void onMessageReceived(@NotNull MessageReceivedEvent event) {
-        Collection<String> prefixes = Config.get().textPrefixes();
-        if (prefixes == null || prefixes.isEmpty())
+        PrefixTrie prefixes = Config.get().textPrefixTrie();
+        if (prefixes.isEmpty())
             return;
 
-        ParsedTextCommand parsed = new ParsedTextCommand(event.getMessage().getContentRaw());
-        if (!parsed.hasPrefix())
+        // Parse once, and share the result between matching and invocation
+        ParsedTextCommand parsed = ParsedTextCommand.parsePrefixed(event.getMessage().getContentRaw(), prefixes);
+        if (parsed == null)
             return;
 
-        CommandMethod cmd = getCommandForEvent(event);
+        TextCommandMethod cmd = index.findTextCommand(parsed.getCmdName());
         if (cmd != null)
-            handleCommand(event, cmd);
+            handleCommand(event, cmd, cmdEvent -> cmd.invoke(event, parsed));
+    }
+
+    private interface CommandInvocation {
+        void invoke(Event event) throws Exception;
     }
 }
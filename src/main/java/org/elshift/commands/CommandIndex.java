@@ -0,0 +1,83 @@
+package org.elshift.commands;
+
+import org.elshift.commands.annotations.CommandGroup;
+import org.elshift.commands.annotations.TextCommand;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable routing table that resolves events to commands with a single hash lookup.
+ * Built once from the list of commands, where earlier commands take precedence over later ones.
+ */
+public final class CommandIndex {
+    private static final Logger logger = LoggerFactory.getLogger(CommandIndex.class);
+
+    private final Map<String, SlashCommandMethod> ungroupedSlashCommands;
+    private final Map<String, Map<String, SlashCommandMethod>> groupedSlashCommands;
+    private final Map<String, TextCommandMethod> textCommands;
+
+    public CommandIndex(@NotNull List<CommandMethod> commands) {
+        Map<String, SlashCommandMethod> ungrouped = new HashMap<>();
+        Map<String, Map<String, SlashCommandMethod>> grouped = new HashMap<>();
+        Map<String, TextCommandMethod> text = new HashMap<>();
+
+        for (CommandMethod cmd : commands) {
+            if (cmd instanceof SlashCommandMethod slashMethod) {
+                CommandGroup group = slashMethod.getGroup();
+                Map<String, SlashCommandMethod> target = group == null ? ungrouped
+                        : grouped.computeIfAbsent(group.name(), k -> new HashMap<>());
+                putFirst(target, slashMethod.getCommand().name(), slashMethod);
+            } else if (cmd instanceof TextCommandMethod textMethod) {
+                TextCommand command = textMethod.getCommand();
+                putFirst(text, command.name(), textMethod);
+                for (String alias : command.aliases())
+                    putFirst(text, alias, textMethod);
+            }
+        }
+
+        Map<String, Map<String, SlashCommandMethod>> immutableGrouped = new HashMap<>();
+        grouped.forEach((group, byName) -> immutableGrouped.put(group, Map.copyOf(byName)));
+
+        this.ungroupedSlashCommands = Map.copyOf(ungrouped);
+        this.groupedSlashCommands = Map.copyOf(immutableGrouped);
+        this.textCommands = Map.copyOf(text);
+    }
+
+    private static <T extends CommandMethod> void putFirst(Map<String, T> map, String key, T cmd) {
+        T existing = map.putIfAbsent(key, cmd);
+        if (existing != null && existing != cmd) {
+            logger.warn("Command name \"{}\" of {} is already used by {}; ignoring it",
+                    key, cmd.getModule().getName(), existing.getModule().getName());
+        }
+    }
+
+    /**
+     * @param group The subcommand group of the interaction, if any
+     * @param name  The name of the interaction
+     * @return The matching slash command, or null if none exists
+     */
+    public @Nullable SlashCommandMethod findSlashCommand(@Nullable String group, @NotNull String name) {
+        if (group == null)
+            return ungroupedSlashCommands.get(name);
+
+        Map<String, SlashCommandMethod> byName = groupedSlashCommands.get(group);
+        return byName == null ? null : byName.get(name);
+    }
+
+    /**
+     * @param name The name or alias of the text command
+     * @return The matching text command, or null if none exists
+     */
+    public @Nullable TextCommandMethod findTextCommand(@Nullable String name) {
+        if (name == null)
+            return null;
+
+        return textCommands.get(name);
+    }
+}
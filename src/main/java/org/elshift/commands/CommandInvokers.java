@@ -0,0 +1,206 @@
+package org.elshift.commands;
+
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import org.elshift.modules.Module;
+import org.elshift.util.ParsedTextCommand;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Compiles command methods into direct invokers, so commands don't pay for {@link Method#invoke} on every call.
+ */
+public final class CommandInvokers {
+    private static final Logger logger = LoggerFactory.getLogger(CommandInvokers.class);
+
+    /**
+     * Invokes a slash command method with its full argument list (event first, then options).
+     */
+    @FunctionalInterface
+    public interface SlashInvoker {
+        void invoke(Object[] arguments) throws Exception;
+    }
+
+    /**
+     * Invokes a text command method.
+     */
+    @FunctionalInterface
+    public interface TextInvoker {
+        void invoke(MessageReceivedEvent event, ParsedTextCommand parsedText) throws Exception;
+    }
+
+    private CommandInvokers() {
+    }
+
+    // Slash command methods are spun against the interface of their arity, indexed by parameter count.
+    // The interfaces are public, because the spun classes live in the package of each module.
+    private static final Class<?>[] SLASH_ARITY_INTERFACES = {
+            null, Slash1.class, Slash2.class, Slash3.class, Slash4.class, Slash5.class, Slash6.class
+    };
+
+    @FunctionalInterface
+    public interface Slash1 {
+        void invoke(Object event) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Slash2 {
+        void invoke(Object event, Object a) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Slash3 {
+        void invoke(Object event, Object a, Object b) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Slash4 {
+        void invoke(Object event, Object a, Object b, Object c) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Slash5 {
+        void invoke(Object event, Object a, Object b, Object c, Object d) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Slash6 {
+        void invoke(Object event, Object a, Object b, Object c, Object d, Object e) throws Exception;
+    }
+
+    /**
+     * Compiles a slash command method into a {@link LambdaMetafactory}-generated invoker of its arity, which
+     * casts and unboxes each argument to the method's parameter types.
+     * Falls back to a spreading {@link MethodHandle} if the method has too many parameters or a lambda cannot be spun.
+     *
+     * @param module Module instance that owns the method
+     * @param method Slash command method
+     * @return An invoker that calls the method
+     */
+    public static @NotNull SlashInvoker compileSlash(@NotNull Module module, @NotNull Method method)
+            throws IllegalAccessException {
+        MethodHandles.Lookup lookup = lookupFor(method);
+        MethodHandle target = lookup.unreflect(method);
+
+        int arity = method.getParameterCount();
+        if (arity > 0 && arity < SLASH_ARITY_INTERFACES.length) {
+            try {
+                return spinSlash(lookup, target, module, method, arity);
+            } catch (Throwable t) {
+                logger.warn("Failed to compile slash command {}, using a method handle instead", method.getName(), t);
+            }
+        }
+
+        MethodHandle handle = target.bindTo(module)
+                .asSpreader(Object[].class, arity)
+                .asType(MethodType.methodType(void.class, Object[].class));
+
+        return arguments -> {
+            try {
+                handle.invokeExact(arguments);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        };
+    }
+
+    private static SlashInvoker spinSlash(MethodHandles.Lookup lookup, MethodHandle target, Module module,
+                                          Method method, int arity) throws Throwable {
+        Class<?> arityInterface = SLASH_ARITY_INTERFACES[arity];
+        MethodType erasedType = MethodType.genericMethodType(arity).changeReturnType(void.class);
+        // Primitive parameters are declared by their wrappers, so that the lambda unboxes them
+        MethodType instantiatedType = MethodType.methodType(void.class, method.getParameterTypes()).wrap()
+                .changeReturnType(void.class);
+
+        CallSite site = LambdaMetafactory.metafactory(
+                lookup,
+                "invoke",
+                MethodType.methodType(arityInterface, method.getDeclaringClass()),
+                erasedType,
+                target,
+                instantiatedType
+        );
+        Object invoker = site.getTarget().invoke(module);
+
+        return switch (arity) {
+            case 1 -> {
+                Slash1 slash = (Slash1) invoker;
+                yield args -> slash.invoke(args[0]);
+            }
+            case 2 -> {
+                Slash2 slash = (Slash2) invoker;
+                yield args -> slash.invoke(args[0], args[1]);
+            }
+            case 3 -> {
+                Slash3 slash = (Slash3) invoker;
+                yield args -> slash.invoke(args[0], args[1], args[2]);
+            }
+            case 4 -> {
+                Slash4 slash = (Slash4) invoker;
+                yield args -> slash.invoke(args[0], args[1], args[2], args[3]);
+            }
+            case 5 -> {
+                Slash5 slash = (Slash5) invoker;
+                yield args -> slash.invoke(args[0], args[1], args[2], args[3], args[4]);
+            }
+            case 6 -> {
+                Slash6 slash = (Slash6) invoker;
+                yield args -> slash.invoke(args[0], args[1], args[2], args[3], args[4], args[5]);
+            }
+            default -> throw new IllegalArgumentException("Unsupported arity " + arity);
+        };
+    }
+
+    /**
+     * Compiles a text command method into a {@link LambdaMetafactory}-generated {@link TextInvoker}.
+     * Falls back to a {@link MethodHandle} if a lambda cannot be spun for the method.
+     *
+     * @param module Module instance that owns the method
+     * @param method Text command method, taking a {@link MessageReceivedEvent} and {@link ParsedTextCommand}
+     * @return An invoker that calls the method
+     */
+    public static @NotNull TextInvoker compileText(@NotNull Module module, @NotNull Method method)
+            throws IllegalAccessException {
+        MethodHandles.Lookup lookup = lookupFor(method);
+        MethodHandle target = lookup.unreflect(method);
+
+        try {
+            MethodType invokerType = MethodType.methodType(
+                    void.class, MessageReceivedEvent.class, ParsedTextCommand.class);
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup,
+                    "invoke",
+                    MethodType.methodType(TextInvoker.class, method.getDeclaringClass()),
+                    invokerType,
+                    target,
+                    invokerType
+            );
+            return (TextInvoker) site.getTarget().invoke(module);
+        } catch (Throwable t) {
+            logger.warn("Failed to compile text command {}, using a method handle instead", method.getName(), t);
+        }
+
+        MethodHandle handle = target.bindTo(module).asType(
+                MethodType.methodType(void.class, MessageReceivedEvent.class, ParsedTextCommand.class));
+
+        return (event, parsedText) -> {
+            try {
+                handle.invokeExact(event, parsedText);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        };
+    }
+
+    private static MethodHandles.Lookup lookupFor(Method method) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+    }
+}
@@ -1,15 +1,15 @@
 package org.elshift.commands;
 
 import net.dv8tion.jda.api.events.Event;
-import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-import net.dv8tion.jda.api.interactions.commands.CommandInteractionPayload;
 import org.elshift.commands.annotations.CommandGroup;
+import org.elshift.commands.annotations.RateLimit;
 import org.elshift.commands.annotations.RunMode;
 import org.elshift.modules.Module;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 
 /**
  * A command that can be invoked, given a matching event
@@ -19,6 +19,8 @@ public abstract class CommandMethod {
     private final Module module;
     private final @NotNull Method method;
     private final RunMode.Mode runMode;
+    private final RateLimiter[] rateLimiters;
+    private final CommandStats stats = new CommandStats();
     private final @Nullable
     CommandGroup group;
 
@@ -34,6 +36,9 @@ public abstract class CommandMethod {
         this.method = method;
         this.group = group;
         this.runMode = runMode == null ? RunMode.Mode.Sync : runMode.value();
+        this.rateLimiters = Arrays.stream(method.getAnnotationsByType(RateLimit.class))
+                .map(RateLimiter::new)
+                .toArray(RateLimiter[]::new);
     }
 
     /**
@@ -42,16 +47,9 @@ public abstract class CommandMethod {
      * @param ctx Original JDA Discord event to provide as context
      * @throws IllegalArgumentException     'ctx' was not the expected event type for this command
      * @throws ReflectiveOperationException Method could not get expected arg-type/arg-count from the event
+     * @throws Exception                    Any exception thrown by the command itself
      */
-    public abstract void invoke(@NotNull Event ctx) throws IllegalArgumentException, ReflectiveOperationException;
-
-    /**
-     * Decides if a JDA interaction/event is referring to this method
-     *
-     * @param event A JDA object such as {@link CommandInteractionPayload} or events ({@link MessageReceivedEvent})
-     * @return Whether a JDA interaction/event is referring to this method
-     */
-    public abstract boolean matchesEvent(@NotNull Object event);
+    public abstract void invoke(@NotNull Event ctx) throws Exception;
 
     public String getName() {
         return name;
@@ -79,6 +77,20 @@ public abstract class CommandMethod {
         return runMode;
     }
 
+    /**
+     * @return The rate limits of this command. Empty if it is unlimited.
+     */
+    public RateLimiter[] getRateLimiters() {
+        return rateLimiters;
+    }
+
+    /**
+     * @return Latency and error metrics of this command
+     */
+    public CommandStats getStats() {
+        return stats;
+    }
+
     protected @NotNull Method getMethod() {
         return method;
     }
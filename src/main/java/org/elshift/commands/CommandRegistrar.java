@@ -0,0 +1,204 @@
+package org.elshift.commands;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import net.dv8tion.jda.api.requests.restaction.CommandListUpdateAction;
+import org.elshift.config.Config;
+import org.elshift.db.Database;
+import org.elshift.util.RestScheduler;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Registers slash commands with Discord, skipping guilds whose commands have not changed since the last registration.
+ * <br>
+ * A fingerprint of the registered command set and the bot's application is stored per guild in the database,
+ * and loaded into memory on startup so that gateway events never wait on the database.
+ * Registration never blocks: each guild's commands are replaced with one bulk update, queued asynchronously.
+ */
+public class CommandRegistrar {
+    private static final Logger logger = LoggerFactory.getLogger(CommandRegistrar.class);
+    // Command updates share one route limit per application, so they are paced together
+    private static final String RATE_LIMIT_BUCKET = "commands";
+
+    private final List<SlashCommandData> slashCommands = new ArrayList<>();
+    private final String fingerprint;
+    private final String emptyFingerprint;
+    private final boolean global;
+    private final Map<Long, String> storedFingerprints = new ConcurrentHashMap<>();
+    // Writes fingerprints off the threads that run REST callbacks, in the order they were registered
+    private final ExecutorService storeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "command-fingerprint-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param commands All commands
+     * @param global   Whether to register commands once globally, instead of in each guild
+     */
+    public CommandRegistrar(@NotNull List<CommandMethod> commands, boolean global) {
+        this.global = global;
+
+        for (CommandMethod baseCmd : commands) {
+            if (!(baseCmd instanceof SlashCommandMethod slashMethod))
+                continue;
+
+            SlashCommandData command = Commands.slash(
+                    slashMethod.getCommand().name(),
+                    slashMethod.getCommand().description()
+            );
+
+            boolean hasOptions = slashMethod.getOptions() != null && !slashMethod.getOptions().isEmpty();
+            if (hasOptions)
+                command.addOptions(slashMethod.getOptions());
+
+            slashCommands.add(command);
+        }
+
+        this.fingerprint = fingerprintOf(slashCommands);
+        this.emptyFingerprint = fingerprintOf(List.of());
+
+        Database db = Config.get().sqlDatabase();
+        if (db.isConnected()) {
+            try {
+                db.seed(CommandFingerprint.class);
+                loadFingerprints(db);
+            } catch (SQLException e) {
+                logger.error("Failed to seed db", e);
+            }
+        }
+    }
+
+    /**
+     * Registers all commands globally, if in global mode. Otherwise, removes the global commands instead.
+     */
+    public void registerGlobal(@NotNull JDA jda) {
+        // Commands left over from global mode would show up next to each guild's own
+        String target = forApplication(jda, global ? fingerprint : emptyFingerprint);
+        if (target.equals(getStoredFingerprint(CommandFingerprint.GLOBAL))) {
+            logger.info("Global commands are up to date");
+            return;
+        }
+
+        CommandListUpdateAction action = jda.updateCommands();
+        if (global)
+            action.addCommands(slashCommands);
+
+        update(CommandFingerprint.GLOBAL, target, action, "global");
+    }
+
+    /**
+     * Registers all commands for a guild. In global mode, removes the guild's own commands instead.
+     */
+    public void registerForGuild(@NotNull Guild guild) {
+        String target = forApplication(guild.getJDA(), global ? emptyFingerprint : fingerprint);
+        if (target.equals(getStoredFingerprint(guild.getIdLong()))) {
+            logger.debug("Commands are up to date for guild: {}", guild.getName());
+            return;
+        }
+
+        CommandListUpdateAction action = guild.updateCommands();
+        if (!global)
+            action.addCommands(slashCommands);
+
+        update(guild.getIdLong(), target, action, "guild: " + guild.getName());
+    }
+
+    private void update(long guildId, String newFingerprint, CommandListUpdateAction action, String targetName) {
+        // Replaces every existing command in one request, which also removes old commands.
+        // Registration can wait, so it never holds up replies while many guilds become ready at once.
+        RestScheduler.get().queue(action, RestScheduler.Priority.HOUSEKEEPING, RATE_LIMIT_BUCKET,
+                registered -> {
+                    logger.info("Registered {} command(s) for {}", registered.size(), targetName);
+                    storeFingerprint(guildId, newFingerprint);
+                },
+                error -> logger.warn("Failed to create commands for {}", targetName, error)
+        );
+    }
+
+    /**
+     * Reads every stored fingerprint into memory.
+     */
+    private void loadFingerprints(Database db) throws SQLException {
+        db.read(con -> {
+            try (PreparedStatement stmt = con.prepareStatement("SELECT guildId, fingerprint FROM CommandFingerprint");
+                 ResultSet result = stmt.executeQuery()) {
+                while (result.next()) {
+                    String stored = result.getString(2);
+                    if (stored != null)
+                        storedFingerprints.put(result.getLong(1), stored);
+                }
+            }
+            return null;
+        });
+        logger.info("Loaded {} command fingerprint(s)", storedFingerprints.size());
+    }
+
+    private String getStoredFingerprint(long guildId) {
+        return storedFingerprints.get(guildId);
+    }
+
+    private void storeFingerprint(long guildId, String fingerprint) {
+        storedFingerprints.put(guildId, fingerprint);
+
+        Database db = Config.get().sqlDatabase();
+        if (!db.isConnected())
+            return;
+
+        storeExecutor.execute(() -> {
+            try {
+                db.updateOrInsert(new CommandFingerprint(guildId, fingerprint));
+            } catch (SQLException e) {
+                logger.error("Failed to store command fingerprint", e);
+            }
+        });
+    }
+
+    /**
+     * @return The fingerprint, tied to the bot's application, so that a database shared with
+     * another bot never skips registering its commands
+     */
+    private static String forApplication(JDA jda, String fingerprint) {
+        return jda.getSelfUser().getApplicationId() + ":" + fingerprint;
+    }
+
+    /**
+     * @return A stable hash of the serialized commands, independent of their order
+     */
+    private static String fingerprintOf(List<SlashCommandData> commands) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            commands.stream()
+                    .sorted(Comparator.comparing(SlashCommandData::getName))
+                    .forEach(command -> digest.update(command.toData().toJson()));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    /**
+     * @return The slash commands to register
+     */
+    public List<SlashCommandData> getSlashCommands() {
+        return slashCommands;
+    }
+}
@@ -0,0 +1,45 @@
+package org.elshift.commands;
+
+import org.elshift.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution metrics of a single command. Safe to record and read from any thread.
+ */
+public final class CommandStats {
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    void recordExecution(long nanos, boolean failed) {
+        execution.record(nanos);
+        if (failed)
+            errors.increment();
+    }
+
+    /**
+     * @return How long executions waited in a queue before starting
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * @return How long executions took, including failed ones
+     */
+    public LatencyHistogram getExecution() {
+        return execution;
+    }
+
+    /**
+     * @return The number of executions that threw an exception
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+}
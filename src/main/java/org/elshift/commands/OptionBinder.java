@@ -0,0 +1,83 @@
+package org.elshift.commands;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Channel;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+
+/**
+ * Converts one slash command option into the argument its command method expects.
+ * Binders are built once when a command is added, so nothing has to be looked up while invoking.
+ */
+public final class OptionBinder {
+    /**
+     * Reads the raw value of an option.
+     */
+    @FunctionalInterface
+    public interface ValueReader {
+        Object read(@NotNull JDA jda, @NotNull OptionMapping mapping);
+    }
+
+    /**
+     * Converts a raw option value into a method argument.
+     */
+    @FunctionalInterface
+    public interface ValueConverter {
+        Object convert(Object rawValue) throws ReflectiveOperationException;
+    }
+
+    private final @NotNull String name;
+    private final @NotNull ValueReader reader;
+    private final @Nullable ValueConverter converter;
+
+    public OptionBinder(@NotNull String name, @NotNull ValueReader reader, @Nullable ValueConverter converter) {
+        this.name = name;
+        this.reader = reader;
+        this.converter = converter;
+    }
+
+    /**
+     * @param type Type of the option
+     * @return A reader for the raw value of an option of that type
+     * @throws IllegalArgumentException The option type is not supported
+     */
+    public static @NotNull ValueReader readerFor(@NotNull OptionType type) {
+        // I wish JDA let you grab the raw object...
+        return switch (type) {
+            case STRING -> (jda, mapping) -> mapping.getAsString();
+            case INTEGER -> (jda, mapping) -> mapping.getAsInt();
+            case BOOLEAN -> (jda, mapping) -> mapping.getAsBoolean();
+            case USER -> (jda, mapping) -> mapping.getAsUser();
+            case CHANNEL -> (jda, mapping) -> jda.getChannelById(Channel.class, mapping.getAsLong());
+            case ROLE -> (jda, mapping) -> mapping.getAsRole();
+            case MENTIONABLE -> (jda, mapping) -> mapping.getAsMentionable();
+            case NUMBER -> (jda, mapping) -> mapping.getAsDouble();
+            case ATTACHMENT -> (jda, mapping) -> mapping.getAsAttachment();
+            default -> throw new IllegalArgumentException("Unexpected value: " + type);
+        };
+    }
+
+    /**
+     * @param event The slash command event holding the option
+     * @return The method argument, or null if the option was not provided
+     */
+    public Object bind(@NotNull SlashCommandInteractionEvent event) throws ReflectiveOperationException {
+        OptionMapping mapping = event.getOption(name);
+        if (mapping == null)
+            return null;
+
+        Object rawValue = reader.read(event.getJDA(), mapping);
+        return converter == null ? rawValue : converter.convert(rawValue);
+    }
+
+    /**
+     * @return The name of the bound option
+     */
+    public @NotNull String getName() {
+        return name;
+    }
+}
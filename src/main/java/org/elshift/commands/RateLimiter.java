@@ -0,0 +1,117 @@
+package org.elshift.commands;
+
+import org.elshift.commands.annotations.RateLimit;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket limiter, keyed by user or guild ID.
+ * <br>
+ * Each bucket is stored as a single "theoretical arrival time" (the generic cell rate algorithm),
+ * which behaves exactly like a token bucket but fits in one atomic long.
+ * A bucket whose arrival time has passed is full, which is the same as having no bucket at all,
+ * so idle buckets are evicted without changing any outcome and memory only grows with recent users.
+ */
+public final class RateLimiter {
+    // Marks a bucket that was evicted, so that a use racing with the eviction retries on a fresh bucket
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private static final ScheduledExecutorService evictionTimer = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "rate-limit-eviction");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final RateLimit limit;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final ConcurrentHashMap<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(@NotNull RateLimit limit) {
+        if (limit.uses() <= 0 || limit.periodSeconds() <= 0)
+            throw new IllegalArgumentException("Rate limits must have positive uses and period");
+
+        this.limit = limit;
+        long periodNanos = TimeUnit.SECONDS.toNanos(limit.periodSeconds());
+        this.intervalNanos = periodNanos / limit.uses();
+        this.burstNanos = periodNanos - intervalNanos;
+
+        // Once per period, off the command path
+        evictionTimer.scheduleAtFixedRate(this::evictIdleBuckets, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes one use from the key's bucket, if any are left.
+     *
+     * @param key User or guild ID, depending on {@link #getScope()}
+     * @return Whether the use is allowed
+     */
+    public boolean tryAcquire(long key) {
+        long now = System.nanoTime();
+        while (true) {
+            AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            long arrival = bucket.get();
+            if (arrival == EVICTED) {
+                buckets.remove(key, bucket);
+                continue;
+            }
+
+            long start = arrival - now < 0 ? now : arrival;
+            if (start - now > burstNanos)
+                return false;
+
+            if (bucket.compareAndSet(arrival, start + intervalNanos))
+                return true;
+        }
+    }
+
+    /**
+     * Gives back a use taken by {@link #tryAcquire(long)}, when the command is rejected for another reason.
+     *
+     * @param key The key the use was taken from
+     */
+    public void refund(long key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null)
+            return;
+
+        while (true) {
+            long arrival = bucket.get();
+            // An evicted bucket was already full
+            if (arrival == EVICTED || bucket.compareAndSet(arrival, arrival - intervalNanos))
+                return;
+        }
+    }
+
+    /**
+     * Removes full buckets. A bucket is marked evicted before it is removed, so a concurrent use is never lost.
+     */
+    private void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.forEach((key, bucket) -> {
+            long arrival = bucket.get();
+            if (arrival != EVICTED && arrival - now <= 0 && bucket.compareAndSet(arrival, EVICTED))
+                buckets.remove(key, bucket);
+        });
+    }
+
+    /**
+     * @return Whether this limit applies per user or per guild
+     */
+    public RateLimit.Scope getScope() {
+        return limit.scope();
+    }
+
+    /**
+     * @return The number of buckets currently held in memory
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+}
@@ -10,45 +10,47 @@ import org.elshift.util.ParsedTextCommand;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Arrays;
 
 public class TextCommandMethod extends CommandMethod {
     private final @NotNull TextCommand command;
+    private final @NotNull CommandInvokers.TextInvoker invoker;
 
     public TextCommandMethod(
             @NotNull TextCommand command,
             @NotNull Module module,
             @NotNull Method method,
             @Nullable CommandGroup group,
-            @Nullable RunMode runMode
+            @Nullable RunMode runMode,
+            @NotNull CommandInvokers.TextInvoker invoker
     ) {
         super(command.name(), module, method, group, runMode);
         this.command = command;
+        this.invoker = invoker;
     }
 
     @Override
-    public void invoke(@NotNull Event ctx) throws InvocationTargetException, IllegalAccessException {
+    public void invoke(@NotNull Event ctx) throws Exception {
         if (!(ctx instanceof MessageReceivedEvent msgEvent))
             throw new IllegalArgumentException("Expected MessageReceivedEvent");
 
-        getMethod().invoke(getModule(), msgEvent, new ParsedTextCommand(msgEvent.getMessage().getContentRaw()));
+        invoke(msgEvent, new ParsedTextCommand(msgEvent.getMessage().getContentRaw()));
     }
 
     /**
-     * @return Whether the {@link MessageReceivedEvent} matches this command
+     * Invokes the command with an already parsed message
+     *
+     * @param msgEvent   Original JDA message event
+     * @param parsedText The message, parsed once by the caller
      */
-    public boolean matchesEvent(@NotNull Object event) {
-        if (!(event instanceof MessageReceivedEvent msgEvent))
-            return false;
-
-        ParsedTextCommand cmd = new ParsedTextCommand(msgEvent.getMessage().getContentStripped());
-
-        String cmdName = cmd.getCmdName();
-        if (cmdName == null)
-            return false;
+    public void invoke(@NotNull MessageReceivedEvent msgEvent, @NotNull ParsedTextCommand parsedText) throws Exception {
+        invoker.invoke(msgEvent, parsedText);
+    }
 
-        return cmdName.equals(command.name()) || Arrays.asList(command.aliases()).contains(cmdName);
+    /**
+     * @return The actual text command
+     */
+    public @NotNull TextCommand getCommand() {
+        return command;
     }
 }
@@ -0,0 +1,31 @@
+package org.elshift.commands.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Limits how often a command can be used. Can be applied once per scope.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(RateLimits.class)
+public @interface RateLimit {
+    enum Scope {
+        User,
+        Guild
+    }
+
+    /**
+     * @return How many uses are allowed in a burst
+     */
+    int uses();
+
+    /**
+     * @return How many seconds it takes for all uses to become available again
+     */
+    int periodSeconds();
+
+    /**
+     * @return Whether the limit is shared by each user, or by everybody in a guild
+     */
+    Scope scope() default Scope.User;
+}
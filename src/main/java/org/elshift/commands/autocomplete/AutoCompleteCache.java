@@ -0,0 +1,123 @@
+package org.elshift.commands.autocomplete;
+
+import net.dv8tion.jda.api.interactions.AutoCompleteQuery;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of autocomplete candidates, keyed by command, option and query.
+ * <br>
+ * Entries expire after a fixed time, and the least recently used entries are evicted first.
+ * When a query misses, but extends a query that is still cached, the provider may rank the cached candidates
+ * again instead of searching everything.
+ */
+public final class AutoCompleteCache {
+    private record Key(String command, String option, String query) {
+    }
+
+    private record Entry(Command.Choice[] candidates, long expiresAt) {
+    }
+
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder refined = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxEntries The maximum number of cached queries
+     * @param ttl        How long candidates stay cached
+     */
+    public AutoCompleteCache(int maxEntries, @NotNull Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param command  The full path of the command, such as {@code "sakuga"}
+     * @param provider The provider to ask on a miss
+     * @param query    The auto complete query
+     * @return The candidates, cached or not
+     */
+    public Command.Choice[] getCandidates(@NotNull String command, @NotNull AutoCompleteProvider provider,
+                                          @NotNull AutoCompleteQuery query) {
+        String value = query.getValue();
+        Key key = new Key(command, query.getName(), value);
+
+        Entry exact = get(key);
+        if (exact != null) {
+            hits.increment();
+            return exact.candidates();
+        }
+
+        // Refine the candidates of the longest cached query that this one extends
+        Command.Choice[] candidates = null;
+        for (int length = value.length() - 1; length > 0; --length) {
+            Entry previous = get(new Key(command, query.getName(), value.substring(0, length)));
+            if (previous == null)
+                continue;
+
+            if (previous.candidates() != null)
+                candidates = provider.refineCandidates(query, previous.candidates());
+            break;
+        }
+
+        if (candidates != null) {
+            refined.increment();
+        } else {
+            misses.increment();
+            candidates = provider.getCandidates(query);
+        }
+
+        put(key, candidates);
+        return candidates;
+    }
+
+    private synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null)
+            return null;
+
+        if (System.nanoTime() - entry.expiresAt() >= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void put(Key key, Command.Choice[] candidates) {
+        entries.put(key, new Entry(candidates, System.nanoTime() + ttlNanos));
+    }
+
+    /**
+     * @return The number of queries answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of queries answered by ranking the cached candidates of a shorter query
+     */
+    public long getRefinedCount() {
+        return refined.sum();
+    }
+
+    /**
+     * @return The number of queries that needed a full search
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
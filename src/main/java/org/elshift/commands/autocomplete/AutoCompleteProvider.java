@@ -14,4 +14,16 @@ public interface AutoCompleteProvider {
      * @return A list of candidates
      */
     Command.Choice[] getCandidates(AutoCompleteQuery query);
+
+    /**
+     * Retrieve a list of candidates for a search query that extends an earlier one, by ranking the earlier
+     * candidates again. Users type one character at a time, so this saves most full searches.
+     *
+     * @param query    The auto complete query
+     * @param previous The candidates found for a query that this query starts with
+     * @return A list of candidates, or null if the earlier candidates aren't enough and a full search is needed
+     */
+    default Command.Choice[] refineCandidates(AutoCompleteQuery query, Command.Choice[] previous) {
+        return null;
+    }
 }
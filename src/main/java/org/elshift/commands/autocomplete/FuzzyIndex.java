@@ -0,0 +1,287 @@
+package org.elshift.commands.autocomplete;
+
+import org.elshift.util.EditDistance;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * An immutable search index over a list of strings, for prefix and fuzzy top-k queries.
+ * <br>
+ * Values are lowercased once, when the index is built. Prefix queries binary search a sorted copy of the values.
+ * Fuzzy queries look up the query's trigrams in an inverted index, and only score the values sharing the most
+ * trigrams with it by {@link EditDistance}, so a query costs about the same no matter how many values there are.
+ */
+public final class FuzzyIndex {
+    // Pads values so that their first and last characters also form trigrams, and short queries still match
+    private static final char PAD = '\0';
+    // How many of the best trigram matches are ranked by edit distance, per requested result
+    private static final int VERIFIED_PER_RESULT = 16;
+    private static final int MIN_VERIFIED = 64;
+
+    private static final int[] NO_POSTINGS = new int[0];
+    private static final ThreadLocal<int[]> sharedCounts = new ThreadLocal<>();
+
+    /**
+     * A value and how similar it is to the query, from 0 to 100.
+     */
+    public record Match(String value, int similarity) {
+    }
+
+    private record Candidate(int id, int score) {
+    }
+
+    // Better candidates first: higher score, then earlier in the original list
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+            .comparingInt(Candidate::score).reversed()
+            .thenComparingInt(Candidate::id);
+
+    private final String[] values;
+    private final String[] lowered;
+    private final int[] sortedIds;
+    private final Map<Long, int[]> postings;
+
+    /**
+     * @param values The values to search, in order of preference for equally good matches. Duplicates are ignored.
+     */
+    public FuzzyIndex(@NotNull List<String> values) {
+        this.values = new LinkedHashSet<>(values).toArray(new String[0]);
+        this.lowered = new String[this.values.length];
+        for (int i = 0; i < this.values.length; ++i)
+            lowered[i] = this.values[i].toLowerCase(Locale.ROOT);
+
+        this.sortedIds = sortedIds(lowered);
+        this.postings = buildPostings(lowered);
+    }
+
+    private static int[] sortedIds(String[] lowered) {
+        Integer[] ids = new Integer[lowered.length];
+        for (int i = 0; i < ids.length; ++i)
+            ids[i] = i;
+        Arrays.sort(ids, Comparator.comparing((Integer id) -> lowered[id]).thenComparingInt(id -> id));
+        return Arrays.stream(ids).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Map<Long, int[]> buildPostings(String[] lowered) {
+        Map<Long, PostingList> lists = new HashMap<>();
+        for (int id = 0; id < lowered.length; ++id) {
+            for (long trigram : trigrams(lowered[id]))
+                lists.computeIfAbsent(trigram, t -> new PostingList()).add(id);
+        }
+
+        Map<Long, int[]> result = new HashMap<>(lists.size() * 2);
+        lists.forEach((trigram, list) -> result.put(trigram, Arrays.copyOf(list.ids, list.size)));
+        return result;
+    }
+
+    /**
+     * A growable list of value ids, in ascending order.
+     */
+    private static final class PostingList {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * @return The distinct trigrams of a lowercased string, each packed into a long
+     */
+    private static long[] trigrams(String s) {
+        String padded = "" + PAD + PAD + s + PAD;
+        long[] result = new long[padded.length() - 2];
+        for (int i = 0; i < result.length; ++i)
+            result[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; ++i) {
+            if (i == 0 || result[i] != result[i - 1])
+                result[distinct++] = result[i];
+        }
+        return distinct == result.length ? result : Arrays.copyOf(result, distinct);
+    }
+
+    /**
+     * @return The number of indexed values
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param query Text the values start with
+     * @return The number of values starting with the query, ignoring case
+     */
+    public int countPrefix(@NotNull String query) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        return lowerBound(lowerQuery + Character.MAX_VALUE) - lowerBound(lowerQuery);
+    }
+
+    /**
+     * Finds values starting with the query, ignoring case.
+     *
+     * @param query Text the values start with
+     * @param limit The maximum number of results
+     * @return The shortest matching values first, since they are closest to the query.
+     * Huge ranges of matches are only searched in part, in alphabetical order.
+     */
+    public List<Match> prefix(@NotNull String query, int limit) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        int start = lowerBound(lowerQuery);
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(BEST_FIRST.reversed());
+        // Every value in the range matches; scan a bounded slice of it so huge ranges stay cheap
+        int scanLimit = Math.max(MIN_VERIFIED, limit * VERIFIED_PER_RESULT);
+        for (int i = start; i < sortedIds.length && i - start < scanLimit; ++i) {
+            int id = sortedIds[i];
+            if (!lowered[id].startsWith(lowerQuery))
+                break;
+            int distance = lowered[id].length() - lowerQuery.length();
+            offer(best, new Candidate(id, similarity(lowered[id].length(), distance)), limit);
+        }
+        return toMatches(best);
+    }
+
+    /**
+     * Finds the values most similar to the query, ignoring case.
+     *
+     * @param query Text to compare the values with
+     * @param limit The maximum number of results
+     * @return The most similar values first. Values with no similarity are never included.
+     */
+    public List<Match> fuzzy(@NotNull String query, int limit) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        if (values.length == 0 || limit <= 0)
+            return List.of();
+
+        int[] counts = sharedCounts.get();
+        if (counts == null || counts.length < values.length)
+            sharedCounts.set(counts = new int[values.length]);
+
+        // Count shared trigrams, remembering which counters to reset afterwards
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (long trigram : trigrams(lowerQuery)) {
+            for (int id : postings.getOrDefault(trigram, NO_POSTINGS)) {
+                if (counts[id]++ == 0) {
+                    if (touchedCount == touched.length)
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = id;
+                }
+            }
+        }
+
+        int verifyLimit = Math.max(MIN_VERIFIED, limit * VERIFIED_PER_RESULT);
+        PriorityQueue<Candidate> mostShared = new PriorityQueue<>(BEST_FIRST.reversed());
+        for (int i = 0; i < touchedCount; ++i) {
+            int id = touched[i];
+            offer(mostShared, new Candidate(id, counts[id]), verifyLimit);
+            counts[id] = 0;
+        }
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(BEST_FIRST.reversed());
+        for (Candidate candidate : mostShared) {
+            String value = lowered[candidate.id()];
+            int longer = Math.max(value.length(), lowerQuery.length());
+
+            // Stop scoring as soon as the candidate can't match the worst of the best so far
+            int minScore = best.size() < limit ? 1 : Math.max(1, best.peek().score());
+            int maxDistance = longer * (100 - minScore) / 100;
+            int distance = EditDistance.distance(lowerQuery, value, maxDistance);
+            if (distance <= maxDistance)
+                offer(best, new Candidate(candidate.id(), similarity(longer, distance)), limit);
+        }
+        return toMatches(best);
+    }
+
+    /**
+     * Finds values starting with the query, followed by the values most similar to it.
+     *
+     * @param query Text to search for
+     * @param limit The maximum number of results
+     * @return Distinct values, best first
+     */
+    public List<Match> search(@NotNull String query, int limit) {
+        if (query.isEmpty()) {
+            List<Match> first = new ArrayList<>();
+            for (int i = 0; i < values.length && i < limit; ++i)
+                first.add(new Match(values[i], 0));
+            return first;
+        }
+
+        List<Match> results = new ArrayList<>(prefix(query, limit));
+        if (results.size() == limit)
+            return results;
+
+        Set<String> seen = new HashSet<>();
+        results.forEach(match -> seen.add(match.value()));
+        for (Match match : fuzzy(query, limit)) {
+            if (results.size() == limit)
+                break;
+            if (seen.add(match.value()))
+                results.add(match);
+        }
+        return results;
+    }
+
+    /**
+     * @return The index of the first sorted value that is not less than the query
+     */
+    private int lowerBound(String query) {
+        int low = 0, high = sortedIds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lowered[sortedIds[mid]].compareTo(query) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Adds a candidate to a heap of the best candidates, worst at the head, keeping at most the limit.
+     */
+    private static void offer(PriorityQueue<Candidate> best, Candidate candidate, int limit) {
+        if (best.size() < limit) {
+            best.add(candidate);
+        } else if (BEST_FIRST.compare(candidate, best.peek()) < 0) {
+            best.poll();
+            best.add(candidate);
+        }
+    }
+
+    private List<Match> toMatches(PriorityQueue<Candidate> best) {
+        Candidate[] sorted = best.toArray(new Candidate[0]);
+        Arrays.sort(sorted, BEST_FIRST);
+
+        List<Match> matches = new ArrayList<>(sorted.length);
+        for (Candidate candidate : sorted)
+            matches.add(new Match(values[candidate.id()], candidate.score()));
+        return matches;
+    }
+
+    /**
+     * @return How similar two strings are, from 0 to 100
+     */
+    private static int similarity(int longerLength, int editDistance) {
+        if (longerLength == 0)
+            return 100;
+        return (int) ((longerLength - editDistance) / (double) longerLength * 100);
+    }
+}
@@ -4,16 +4,24 @@ import net.dv8tion.jda.api.interactions.AutoCompleteQuery;
 import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import org.elshift.commands.autocomplete.AutoCompleteProvider;
+import org.elshift.commands.autocomplete.FuzzyIndex;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 
 /**
  * A generic auto-complete provider for string options
  */
 public abstract class StringAutoCompleteProvider implements AutoCompleteProvider {
+    private volatile IndexedValues indexed;
+
+    private record IndexedValues(List<String> values, FuzzyIndex index) {
+    }
+
     /**
-     * @return A list of strings to search through. This value should be cached for large arrays
+     * @return A list of strings to search through. The search index is rebuilt whenever a different list is returned,
+     * so the same list should be returned for as long as the values don't change.
      */
     protected abstract List<String> getPossibleValues();
 
@@ -27,78 +35,58 @@ public abstract class StringAutoCompleteProvider implements AutoCompleteProvider
         if (query.getType() != OptionType.STRING)
             return null;
 
-        List<String> possibleValues = getPossibleValues();
-
-        if (possibleValues.isEmpty())
+        FuzzyIndex index = getIndex();
+        if (index.size() == 0)
             return null;
 
-        String search = query.getValue();
+        return toChoices(index.search(query.getValue(), getMaxCandidates()));
+    }
 
-        // Keep track of the best six matches
-        Map<Integer, String> bestMatches = new java.util.TreeMap<>();
+    @Override
+    public Command.Choice[] refineCandidates(AutoCompleteQuery query, Command.Choice[] previous) {
+        if (query.getType() != OptionType.STRING)
+            return null;
 
-        final int maxCandidates = getMaxCandidates();
+        String search = query.getValue();
+        String lowerSearch = search.toLowerCase(Locale.ROOT);
+        List<String> previousValues = new ArrayList<>(previous.length);
+        int previousPrefixMatches = 0;
+        for (Command.Choice choice : previous) {
+            previousValues.add(choice.getAsString());
+            if (choice.getAsString().toLowerCase(Locale.ROOT).startsWith(lowerSearch))
+                ++previousPrefixMatches;
+        }
 
-        // Find the best matches
-        for (String possibleValue : possibleValues) {
-            int similarity = similarity(possibleValue, search);
-            if (similarity > 0) {
-                bestMatches.put(similarity, possibleValue);
-            }
+        // Values starting with the query come first, so they must all be among the earlier candidates
+        int prefixMatches = Math.min(getIndex().countPrefix(search), getMaxCandidates());
+        if (previousPrefixMatches < prefixMatches)
+            return null;
 
-            if (bestMatches.size() > maxCandidates) {
-                bestMatches.remove(bestMatches.keySet().iterator().next());
-            }
-        }
+        return toChoices(new FuzzyIndex(previousValues).search(search, getMaxCandidates()));
+    }
 
-        // Convert the best matches to choices (reverse order)
-        Command.Choice[] choices = new Command.Choice[bestMatches.size()];
-        int i = 0;
-        for (String possibleValue : bestMatches.values()) {
-            choices[choices.length - i - 1] = new Command.Choice(possibleValue, possibleValue);
-            i++;
+    private static Command.Choice[] toChoices(List<FuzzyIndex.Match> matches) {
+        Command.Choice[] choices = new Command.Choice[matches.size()];
+        for (int i = 0; i < choices.length; ++i) {
+            String value = matches.get(i).value();
+            choices[i] = new Command.Choice(value, value);
         }
 
         return choices;
     }
 
-    private static int similarity(String s1, String s2) {
-        String longer = s1, shorter = s2;
-        if (s1.length() < s2.length()) { // longer should always have greater length
-            longer = s2;
-            shorter = s1;
-        }
-        int longerLength = longer.length();
-        if (longerLength == 0) {
-            return 1; /* both strings are zero length */
-        }
-        return (int) (((longerLength - editDistance(longer, shorter)) / (double) longerLength) * 100);
-    }
+    /**
+     * @return The index of the current possible values, built once per list
+     */
+    private FuzzyIndex getIndex() {
+        List<String> possibleValues = getPossibleValues();
 
-    private static int editDistance(String s1, String s2) {
-        s1 = s1.toLowerCase();
-        s2 = s2.toLowerCase();
-
-        int[] costs = new int[s2.length() + 1];
-        for (int i = 0; i <= s1.length(); i++) {
-            int lastValue = i;
-            for (int j = 0; j <= s2.length(); j++) {
-                if (i == 0)
-                    costs[j] = j;
-                else {
-                    if (j > 0) {
-                        int newValue = costs[j - 1];
-                        if (s1.charAt(i - 1) != s2.charAt(j - 1))
-                            newValue = Math.min(Math.min(newValue, lastValue),
-                                    costs[j]) + 1;
-                        costs[j - 1] = lastValue;
-                        lastValue = newValue;
-                    }
-                }
-            }
-            if (i > 0)
-                costs[s2.length()] = lastValue;
+        IndexedValues current = indexed;
+        if (current == null || current.values() != possibleValues) {
+            current = new IndexedValues(possibleValues, new FuzzyIndex(possibleValues));
+            indexed = current;
         }
-        return costs[s2.length()];
+
+        return current.index();
     }
 }
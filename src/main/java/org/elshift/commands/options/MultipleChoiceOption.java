@@ -1,9 +1,6 @@
 package org.elshift.commands.options;
 
 import net.dv8tion.jda.api.interactions.commands.Command;
-import org.jetbrains.annotations.NotNull;
-
-import java.lang.reflect.Constructor;
 
 /**
  * Represents a dynamic multiple choice slash command option.
@@ -16,20 +13,6 @@ public abstract class MultipleChoiceOption<T> {
     public MultipleChoiceOption() {
     }
 
-    /**
-     * Wraps an object value into the specified multiple choice option type.
-     */
-    @SuppressWarnings("unchecked")
-    public static @NotNull MultipleChoiceOption<Object> wrap(@NotNull Class<?> type, Object value)
-            throws ReflectiveOperationException {
-        Constructor<?> constructor = type.getDeclaredConstructor();
-        constructor.setAccessible(true);
-        MultipleChoiceOption<Object> option
-                = (MultipleChoiceOption<Object>) constructor.newInstance();
-        option.setValue(value);
-        return option;
-    }
-
     /**
      * Set the value of the multiple choice option.
      *
@@ -2,7 +2,11 @@ package org.elshift.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+import org.elshift.commands.annotations.RunMode;
 import org.elshift.db.Database;
+import org.elshift.db.SqlitePerformanceProfile;
+import org.elshift.util.PrefixTrie;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,12 +16,27 @@ import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 public class Config implements Serializable {
+    /**
+     * Decides which synchronous commands must run in order with each other.
+     */
+    public enum SyncScope {
+        @SerializedName("guild")
+        GUILD,
+        @SerializedName("channel")
+        CHANNEL
+    }
+
     private static final Logger logger = LoggerFactory.getLogger(Config.class);
     private static final Config instance = load("config.json");
+    // Discord gives interactions 3 seconds to be answered; leave some room for the reply itself
+    private static final long DEFAULT_INTERACTION_DEADLINE_MS = 2_500;
+    private static final long DEFAULT_AUTO_DEFER_MS = 2_000;
 
     private String token;
     private String activity;
@@ -27,8 +46,18 @@ public class Config implements Serializable {
     private String sqlPass;
     private HashSet<String> whitelist;
     private ArrayList<String> textPrefixes;
+    private Boolean virtualThreads;
+    private HashMap<String, Integer> asyncConcurrencyLimits;
+    private SyncScope syncScope;
+    private HashMap<RunMode.Mode, Integer> maxQueuedCommands;
+    private Long interactionDeadlineMs;
+    private Boolean globalCommands;
+    private Long autoDeferMs;
+    private Integer sqlReadPoolSize;
+    private SqlitePerformanceProfile sqlitePerformance;
 
-    private Database sqlDatabase = new Database();
+    private transient Database sqlDatabase = new Database();
+    private transient PrefixTrie textPrefixTrie;
 
     private static void saveDefault(String path) {
         Config config = new Config();
@@ -42,6 +71,15 @@ public class Config implements Serializable {
         config.textPrefixes = new ArrayList<>() {{
             add("/");
         }};
+        config.virtualThreads = true;
+        config.asyncConcurrencyLimits = new HashMap<>();
+        config.syncScope = SyncScope.GUILD;
+        config.maxQueuedCommands = defaultMaxQueuedCommands();
+        config.interactionDeadlineMs = DEFAULT_INTERACTION_DEADLINE_MS;
+        config.globalCommands = false;
+        config.autoDeferMs = DEFAULT_AUTO_DEFER_MS;
+        config.sqlReadPoolSize = Database.DEFAULT_READ_POOL_SIZE;
+        config.sqlitePerformance = SqlitePerformanceProfile.of(SqlitePerformanceProfile.Preset.PRODUCTION);
 
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
         try (FileWriter writer = new FileWriter(path)) {
@@ -67,6 +105,26 @@ public class Config implements Serializable {
             logger.warn("You have not configured any text command prefixes! Text commands will not work.");
         else  // Longest prefixes come first, so that prefixes like { "x", "xy" } do not read "xy test" as "y test"
             result.textPrefixes.sort((String s1, String s2) -> s2.length() - s1.length());
+        result.textPrefixTrie = PrefixTrie.of(result.textPrefixes);
+
+        if (result.virtualThreads == null)
+            result.virtualThreads = true;
+        if (result.asyncConcurrencyLimits == null)
+            result.asyncConcurrencyLimits = new HashMap<>();
+        if (result.syncScope == null)
+            result.syncScope = SyncScope.GUILD;
+        if (result.maxQueuedCommands == null)
+            result.maxQueuedCommands = defaultMaxQueuedCommands();
+        if (result.interactionDeadlineMs == null)
+            result.interactionDeadlineMs = DEFAULT_INTERACTION_DEADLINE_MS;
+        if (result.globalCommands == null)
+            result.globalCommands = false;
+        if (result.autoDeferMs == null)
+            result.autoDeferMs = DEFAULT_AUTO_DEFER_MS;
+        if (result.sqlReadPoolSize == null || result.sqlReadPoolSize < 0)
+            result.sqlReadPoolSize = Database.DEFAULT_READ_POOL_SIZE;
+        if (result.sqlitePerformance == null)
+            result.sqlitePerformance = SqlitePerformanceProfile.of(SqlitePerformanceProfile.Preset.PRODUCTION);
 
         if (isNullOrEmpty(result.sqlUser) || isNullOrEmpty(result.sqlPass))
             result.sqlUser = result.sqlPass = null;
@@ -78,7 +136,8 @@ public class Config implements Serializable {
                 result.sqlDatabase.closeIfConnected();
             }
             else
-                result.sqlDatabase.reconnect(result.sqlServer, result.sqlUser, result.sqlPass);
+                result.sqlDatabase.reconnect(result.sqlServer, result.sqlUser, result.sqlPass, result.sqlReadPoolSize,
+                        result.sqlitePerformance);
         } catch (SQLException e) {
             logger.error("Failed to open/close SQL server connection", e);
             result.sqlDatabase = new Database();
@@ -87,6 +146,13 @@ public class Config implements Serializable {
         return result;
     }
 
+    private static HashMap<RunMode.Mode, Integer> defaultMaxQueuedCommands() {
+        HashMap<RunMode.Mode, Integer> limits = new HashMap<>();
+        limits.put(RunMode.Mode.Sync, 256);
+        limits.put(RunMode.Mode.Async, 1024);
+        return limits;
+    }
+
     private static boolean isNullOrEmpty(String str) {
         return str == null || str.isEmpty();
     }
@@ -131,6 +197,78 @@ public class Config implements Serializable {
         return textPrefixes;
     }
 
+    /**
+     * @return Whether asynchronous commands run on virtual threads instead of a cached platform thread pool
+     */
+    public boolean virtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return The maximum number of concurrent asynchronous commands, by module name.
+     * Modules without a limit are unbounded.
+     */
+    public Map<String, Integer> asyncConcurrencyLimits() {
+        return asyncConcurrencyLimits;
+    }
+
+    /**
+     * @return Whether synchronous commands are ordered per guild or per channel
+     */
+    public SyncScope syncScope() {
+        return syncScope;
+    }
+
+    /**
+     * @return The maximum number of commands that may wait to execute, per run mode
+     */
+    public Map<RunMode.Mode, Integer> maxQueuedCommands() {
+        return maxQueuedCommands;
+    }
+
+    /**
+     * @return How long after Discord created an interaction it may still start executing, before it is dropped
+     */
+    public long interactionDeadlineMs() {
+        return interactionDeadlineMs;
+    }
+
+    /**
+     * @return Whether slash commands are registered once globally, instead of in every guild
+     */
+    public boolean globalCommands() {
+        return globalCommands;
+    }
+
+    /**
+     * @return How long a slash command may take to reply before its reply is deferred automatically.
+     * 0 or less disables automatic deferral.
+     */
+    public long autoDeferMs() {
+        return autoDeferMs;
+    }
+
+    /**
+     * @return A precompiled trie of {@link #textPrefixes()}
+     */
+    public PrefixTrie textPrefixTrie() {
+        return textPrefixTrie;
+    }
+
+    /**
+     * @return The number of database connections used for reads, in addition to the one used for writes
+     */
+    public int sqlReadPoolSize() {
+        return sqlReadPoolSize;
+    }
+
+    /**
+     * @return SQLite settings applied to every database connection, before the preset fills in unset values
+     */
+    public SqlitePerformanceProfile sqlitePerformance() {
+        return sqlitePerformance;
+    }
+
     public Database sqlDatabase() {
         return sqlDatabase;
     }
@@ -4,12 +4,49 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.HashMap;
-
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A database with one writer connection and a pool of reader connections.
+ * <br>
+ * Writes take turns on the writer. Reads check out a reader for the length of one operation, so they run
+ * concurrently with each other and with writes. SQLite connections are tuned by a {@link SqlitePerformanceProfile},
+ * whose presets switch to write-ahead logging, which lets readers keep reading the last committed data while the
+ * writer works.
+ */
 public class Database {
-    private Connection con = null;
+    public static final int DEFAULT_READ_POOL_SIZE = 4;
+    // How long a read waits for an idle reader before failing
+    private static final long READER_TIMEOUT_MS = 10_000;
+    // How often a waiting read checks whether the pool was closed
+    private static final long READER_POLL_MS = 100;
+
+    /**
+     * Work done with a connection that is checked out for it.
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(Connection con) throws SQLException;
+    }
+
+    private volatile Connection con = null;
     private Statement stmt = null;
-    private final HashMap<Class<?>, SqlGenerator> sqlTypes = new HashMap<>();
+    private final Map<Class<?>, SqlGenerator> sqlTypes = new ConcurrentHashMap<>();
+    // Statements prepared from generated templates, by SQL. Guarded by this database's lock.
+    private final HashMap<String, PreparedStatement> cachedStatements = new HashMap<>();
+    // Idle readers. Reads fall back to the writer when the pool is empty.
+    private final BlockingQueue<Connection> readers = new LinkedBlockingQueue<>();
+    private final List<Connection> allReaders = new ArrayList<>();
+    private volatile int readPoolSize;
+    // How many transactions the writer is inside. Guarded by this database's lock.
+    private int transactionDepth;
     private static final Logger logger = LoggerFactory.getLogger(Database.class);
 
     public Database(String server, String user, String pass) throws SQLException {
@@ -25,75 +62,230 @@ public class Database {
     }
 
     public void reconnect(String server, String user, String pass) throws SQLException {
+        reconnect(server, user, pass, DEFAULT_READ_POOL_SIZE,
+                SqlitePerformanceProfile.of(SqlitePerformanceProfile.Preset.PRODUCTION));
+    }
+
+    /**
+     * Closes any open connections, and opens new ones
+     *
+     * @param server       JDBC URL of the database
+     * @param user         User name, or null to connect without credentials
+     * @param pass         Password, or null to connect without credentials
+     * @param readPoolSize Number of reader connections to open in addition to the writer
+     * @param profile      Settings applied to every connection, if the database is SQLite
+     */
+    public synchronized void reconnect(String server, String user, String pass, int readPoolSize,
+                                       SqlitePerformanceProfile profile) throws SQLException {
         closeIfConnected();
-        if (server != null) {
-            if (user == null || pass == null)
-                con = DriverManager.getConnection(server);
-            else
-                con = DriverManager.getConnection(server, user, pass);
+        if (server == null)
+            return;
+
+        con = connect(server, user, pass);
+        stmt = con.createStatement();
+
+        boolean isSqlite = server.startsWith("jdbc:sqlite:");
+        SqlitePerformanceProfile resolved = profile.resolve();
+        if (isSqlite)
+            resolved.apply(con, true);
+
+        if (isSqlite && isInMemory(server)) {
+            // Every connection to an in-memory database gets its own, empty database
+            readPoolSize = 0;
+        } else if (isSqlite && readPoolSize > 0) {
+            try (ResultSet mode = stmt.executeQuery("PRAGMA journal_mode")) {
+                if (mode.next() && !"wal".equalsIgnoreCase(mode.getString(1)))
+                    logger.warn("SQLite is not using write-ahead logging, reads may wait for writes");
+            }
+        }
+
+        for (int i = 0; i < readPoolSize; ++i) {
+            Connection reader = connect(server, user, pass);
+            allReaders.add(reader);
+            readers.add(reader);
+            if (isSqlite)
+                resolved.apply(reader, false);
         }
+        this.readPoolSize = readPoolSize;
+        logger.info("Connected to database with 1 writer and {} reader(s)", readPoolSize);
+        if (isSqlite)
+            logger.info("Applied SQLite profile {}: {}", resolved.preset(), SqlitePerformanceProfile.describe(con));
+    }
+
+    private static Connection connect(String server, String user, String pass) throws SQLException {
+        if (user == null || pass == null)
+            return DriverManager.getConnection(server);
+        return DriverManager.getConnection(server, user, pass);
+    }
 
-        if (con != null)
-            stmt = con.createStatement();
+    private static boolean isInMemory(String server) {
+        return server.contains(":memory:") || server.contains("mode=memory") || server.equals("jdbc:sqlite:");
     }
 
     /**
-     * Initializes the necessary Java info and SQL tables for the given Java types, if not already done
+     * Initializes the necessary Java info, SQL tables and indexes for the given Java types, if not already done.
+     * Indexes added to a type later are created on existing tables too.
      *
      * @param types A list of Java types to add to the database
      * @return False if errors occurred
      */
-    public boolean seed(Class<?>... types) throws SQLException {
+    public synchronized boolean seed(Class<?>... types) throws SQLException {
         for (Class<?> c : types) {
             SqlGenerator gen = getOrMakeGen(c);
             if (executeUpdate(gen.createTable(gen.getSqlName())) == -1)
                 return false;
+
+            List<String> indexes = gen.createIndexes(gen.getSqlName());
+            if (indexes == null)
+                return false;
+            for (String index : indexes) {
+                if (executeUpdate(index) == -1)
+                    return false;
+            }
         }
         return true;
     }
 
-    public PreparedStatement preparedStatement(String sql) throws SQLException {
-        return con.prepareStatement(sql);
+    /**
+     * Runs work on a reader connection, concurrently with other reads and with writes
+     *
+     * @param work Reads to run. Must not keep the connection, or anything made from it, after returning.
+     * @return The result of the work
+     */
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        Connection reader = checkoutReader();
+        if (reader == null) {
+            synchronized (this) {
+                return work.run(con);
+            }
+        }
+
+        try {
+            return work.run(reader);
+        } finally {
+            release(reader);
+        }
     }
 
-    public boolean insert(Object o) throws SQLException {
-        SqlGenerator gen = getTypeGen(o.getClass());
-        return executeUpdate(gen.insertInto(gen.getSqlName(), o)) > 0;
+    /**
+     * Runs work on the writer connection in a transaction, which commits if the work returns,
+     * and rolls back if it throws.
+     * <br>
+     * Calls nested in the work run in a savepoint of the outer transaction instead, so a failed nested call only
+     * undoes its own writes, and everything is committed once, when the outermost call returns.
+     * Other writes on this database wait until the outermost call returns.
+     *
+     * @param work Writes to run, through the given connection or this database's methods
+     * @return The result of the work
+     */
+    public synchronized <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        if (transactionDepth > 0)
+            return inSavepoint(work);
+
+        con.setAutoCommit(false);
+        ++transactionDepth;
+        try {
+            T result = work.run(con);
+            con.commit();
+            return result;
+        } catch (Throwable e) {
+            rollback(e, null);
+            throw e;
+        } finally {
+            --transactionDepth;
+            con.setAutoCommit(true);
+        }
+    }
+
+    private <T> T inSavepoint(SqlWork<T> work) throws SQLException {
+        Savepoint savepoint = con.setSavepoint();
+        ++transactionDepth;
+        try {
+            T result = work.run(con);
+            con.releaseSavepoint(savepoint);
+            return result;
+        } catch (Throwable e) {
+            rollback(e, savepoint);
+            throw e;
+        } finally {
+            --transactionDepth;
+        }
+    }
+
+    private void rollback(Throwable cause, Savepoint savepoint) {
+        try {
+            if (savepoint != null)
+                con.rollback(savepoint);
+            else
+                con.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
     }
 
-    public boolean updateWhere(Object o, String sqlCondition, String... sqlFields) throws SQLException {
+    public synchronized boolean insert(Object o) throws SQLException {
         SqlGenerator gen = getTypeGen(o.getClass());
-        return executeUpdate(gen.updateWhere(gen.getSqlName(), o, sqlCondition, sqlFields)) > 0;
+        PreparedStatement insert = cachedStatement(gen.insertTemplate());
+        return gen.bindValues(insert, o) && insert.executeUpdate() > 0;
     }
 
-    public boolean updateWherePrimaryKey(Object o, String... sqlFields) throws SQLException {
+    public synchronized boolean updateWhere(Object o, String sqlCondition, String... sqlFields) throws SQLException {
         SqlGenerator gen = getTypeGen(o.getClass());
-        return executeUpdate(gen.updateWherePrimaryKey(gen.getSqlName(), o, sqlFields)) > 0;
+        String template = gen.updateWhereTemplate(sqlCondition, sqlFields);
+        if (template == null)
+            return false;
+
+        // Not cached, since every condition makes a different statement
+        try (PreparedStatement update = con.prepareStatement(template)) {
+            return gen.bindUpdateWhere(update, o, sqlFields) && update.executeUpdate() > 0;
+        }
     }
 
-    public boolean updateOrInsert(Object o) throws SQLException {
+    public synchronized boolean updateWherePrimaryKey(Object o, String... sqlFields) throws SQLException {
         SqlGenerator gen = getTypeGen(o.getClass());
-        return executeUpdate(gen.updateOrInsert(gen.getSqlName(), o)) > 0;
+        String template = gen.updateWherePrimaryKeyTemplate(sqlFields);
+        if (template == null)
+            return false;
+
+        PreparedStatement update = cachedStatement(template);
+        return gen.bindUpdateWherePrimaryKey(update, o, sqlFields) && update.executeUpdate() > 0;
     }
 
-    public <T> boolean updateOrInsertMany(Class<T> klass, Iterable<T> o) throws SQLException {
-        SqlGenerator gen = getTypeGen(klass);
-        return executeUpdate(gen.updateOrInsertMany(gen.getSqlName(), (Iterable<Object>) o)) > 0;
+    public synchronized boolean updateOrInsert(Object o) throws SQLException {
+        SqlGenerator gen = getTypeGen(o.getClass());
+        PreparedStatement upsert = cachedStatement(gen.updateOrInsertTemplate());
+        return gen.bindValues(upsert, o) && upsert.executeUpdate() > 0;
     }
 
     /**
-     * Executes an arbitrary SQL query, and expects the results to match the given class
+     * Adds or updates many unique rows as one batch, which is written atomically
      *
-     * @param klass    Java class being queried
-     * @param sqlQuery SQL query to execute
-     * @return A reader utility that wraps {@link ResultSet}
+     * @param klass Java class of the rows. Must have a primary key.
+     * @param o     Objects to write
+     * @return False if no rows were written, or errors occurred
      */
-    public <T> SqlObjectReader<T> queryObjects(Class<T> klass, String sqlQuery) throws SQLException {
-        ResultSet sqlResult = executeQuery(sqlQuery);
-        if (sqlResult == null)
-            return null;
+    public synchronized <T> boolean updateOrInsertMany(Class<T> klass, Iterable<T> o) throws SQLException {
+        SqlGenerator gen = getTypeGen(klass);
+        PreparedStatement upsert = cachedStatement(gen.updateOrInsertTemplate());
+        try {
+            for (T instance : o) {
+                if (!gen.bindValues(upsert, instance)) {
+                    upsert.clearBatch();
+                    return false;
+                }
+                upsert.addBatch();
+            }
+        } catch (SQLException e) {
+            upsert.clearBatch();
+            throw e;
+        }
 
-        return new SqlObjectReader<>(sqlResult, getTypeGen(klass));
+        int[] counts = executeBatch(upsert);
+        for (int count : counts) {
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO)
+                return true;
+        }
+        return false;
     }
 
     /**
@@ -123,19 +315,11 @@ public class Database {
      * @return An instance of {@code type} upon success. {@code null} on failure.
      */
     public <T> T querySimple(Class<T> type, String sqlQuery) throws SQLException {
-        try (ResultSet sqlResult = stmt.executeQuery(sqlQuery)) {
-            return querySimple(type, sqlResult);
-        }
-    }
-
-    /**
-     * Executes an arbitrary SQL query
-     *
-     * @param sqlQuery SQL query to execute
-     * @return A {@link ResultSet} instance on success. {@code null} on failure.
-     */
-    public ResultSet executeQuery(String sqlQuery) throws SQLException {
-        return stmt.executeQuery(sqlQuery);
+        return read(reader -> {
+            try (Statement query = reader.createStatement(); ResultSet sqlResult = query.executeQuery(sqlQuery)) {
+                return querySimple(type, sqlResult);
+            }
+        });
     }
 
     /**
@@ -149,18 +333,14 @@ public class Database {
      */
     public <T> T getFirstObjectWhere(T output, String sqlCondition) throws SQLException {
         SqlGenerator gen = getTypeGen(output.getClass());
-        ResultSet sqlResult = executeQuery(gen.selectWhere(gen.getSqlName(), sqlCondition));
-        if (sqlResult == null)
-            return null;
-
-        T result = null;
-        if (!sqlResult.next())
-            return null;
-
-        result = SqlObjectReader.readObject(sqlResult, gen, output);
-        sqlResult.close();
-
-        return result;
+        return read(reader -> {
+            try (Statement query = reader.createStatement();
+                 ResultSet sqlResult = query.executeQuery(gen.selectWhere(gen.getSqlName(), sqlCondition))) {
+                if (!sqlResult.next())
+                    return null;
+                return SqlObjectReader.readObject(sqlResult, gen, output);
+            }
+        });
     }
 
     /**
@@ -175,18 +355,40 @@ public class Database {
      */
     public <T> T getFirstObjectWhereFieldsMatch(T input, T output, String... sqlFields) throws SQLException {
         SqlGenerator gen = getTypeGen(input.getClass());
-        String sqlCondition = gen.matchingFieldsCondition(input, sqlFields);
-        if (sqlCondition == null)
+        String template = gen.selectWhereFieldsMatchTemplate(sqlFields);
+        if (template == null)
             return null;
 
-        return getFirstObjectWhere(output, sqlCondition);
+        return read(reader -> {
+            try (PreparedStatement query = reader.prepareStatement(template)) {
+                if (!gen.bindMatchingFields(query, input, sqlFields))
+                    return null;
+
+                try (ResultSet sqlResult = query.executeQuery()) {
+                    if (!sqlResult.next())
+                        return null;
+                    return SqlObjectReader.readObject(sqlResult, gen, output);
+                }
+            }
+        });
     }
 
     public <T> SqlGenerator getTypeGen(Class<T> c) {
         return sqlTypes.get(c);
     }
 
-    public void closeIfConnected() throws SQLException {
+    public synchronized void closeIfConnected() throws SQLException {
+        for (PreparedStatement cached : cachedStatements.values())
+            cached.close();
+        cachedStatements.clear();
+
+        // Readers that are checked out are closed too, and dropped when they are returned
+        readPoolSize = 0;
+        readers.clear();
+        for (Connection reader : allReaders)
+            reader.close();
+        allReaders.clear();
+
         if (isConnected())
             con.close();
         con = null;
@@ -201,12 +403,65 @@ public class Database {
         return stmt.executeUpdate(sql);
     }
 
+    /**
+     * Prepares a generated template once, and reuses it from then on.
+     * Callers must hold this database's lock while using the statement.
+     */
+    private PreparedStatement cachedStatement(String sql) throws SQLException {
+        PreparedStatement cached = cachedStatements.get(sql);
+        if (cached == null) {
+            cached = con.prepareStatement(sql);
+            cachedStatements.put(sql, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Executes a statement's batch in one transaction, or in the open one,
+     * so that the batch is written atomically and synced to disk once.
+     */
+    private int[] executeBatch(PreparedStatement batch) throws SQLException {
+        return inTransaction(writer -> batch.executeBatch());
+    }
+
+    /**
+     * @return An idle reader, waiting for one if all are busy, or null if there are no readers
+     * @throws SQLException If no reader became idle in time, or the pool was closed while waiting
+     */
+    private Connection checkoutReader() throws SQLException {
+        if (readPoolSize == 0)
+            return null;
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(READER_TIMEOUT_MS);
+        try {
+            // Waits in short steps, since closing the pool leaves nothing in the queue to wake waiting reads
+            while (readPoolSize != 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    throw new SQLException("Timed out waiting for a database connection");
+
+                Connection reader = readers.poll(
+                        Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(READER_POLL_MS)), TimeUnit.NANOSECONDS);
+                if (reader != null)
+                    return reader;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        throw new SQLException("Database connection pool was closed");
+    }
+
+    private void release(Connection reader) {
+        try {
+            if (!reader.isClosed())
+                readers.add(reader);
+        } catch (SQLException e) {
+            logger.error("Failed to return a database connection to the pool", e);
+        }
+    }
+
     private <T> SqlGenerator getOrMakeGen(Class<T> c) {
-        SqlGenerator gen = sqlTypes.get(c);
-        if (gen != null)
-            return gen;
-        gen = new SqlGenerator(c);
-        sqlTypes.put(c, gen);
-        return gen;
+        return sqlTypes.computeIfAbsent(c, SqlGenerator::new);
     }
 }
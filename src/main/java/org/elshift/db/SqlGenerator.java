@@ -1,5 +1,6 @@
 package org.elshift.db;
 
+import org.elshift.db.annotations.SqlIndex;
 import org.elshift.db.annotations.SqlName;
 import org.elshift.db.annotations.SqlNotNull;
 import org.elshift.db.annotations.SqlPrimaryKey;
@@ -10,14 +11,25 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Generates SQL statement strings from an object or object type.
  * <br><i><b><u>    Absolutely unsafe!    </u></b></i>
- * Only use the generated statements in a trusted environment where no unwanted code can get loaded in any way.
+ * SQL conditions are copied into the generated statements as they are given. Only use them in a trusted environment
+ * where no unwanted code can get loaded in any way.
+ * <br>
+ * Values are never inlined. Statements that take values, such as {@link #insertTemplate()}, are parameterized
+ * templates, and values are bound to them with the matching bind method, such as
+ * {@link #bindValues(PreparedStatement, Object)}.
  */
 public class SqlGenerator {
     public enum SqlType {
@@ -68,6 +80,17 @@ public class SqlGenerator {
     private final Class type;
     private final String typeSqlName;
     private final HashMap<String, SqlField> fieldMap = new HashMap<>();
+    // The order of the parameters in templates
+    private final List<SqlField> templateFields;
+    private final String insertTemplate;
+    private final String updateOrInsertTemplate;
+    private final List<IndexDefinition> indexes = new ArrayList<>();
+
+    /**
+     * A secondary index, by SQL names of its columns.
+     */
+    private record IndexDefinition(String name, boolean unique, List<String> columns) {
+    }
 
     private static final Logger logger = LoggerFactory.getLogger(DownloadModule.class);
     private static final String ACCESS_EXCEPTION_MSG =
@@ -106,7 +129,21 @@ public class SqlGenerator {
 
             fieldMap.put(sqlName, new SqlField(sqlName, f, sqlType, constraints));
             constraints = new ArrayList<>();
+
+            for (SqlIndex index : f.getAnnotationsByType(SqlIndex.class))
+                addIndex(index, List.of(sqlName));
         }
+
+        for (SqlIndex index : (SqlIndex[]) type.getAnnotationsByType(SqlIndex.class))
+            addIndex(index, List.of(index.columns()));
+
+        this.templateFields = List.copyOf(fieldMap.values());
+        String columns = templateFields.stream().map(SqlField::sqlName).collect(Collectors.joining(", "));
+        String parameters = String.join(", ", Collections.nCopies(templateFields.size(), "?"));
+        this.insertTemplate = "INSERT INTO %s (%s) VALUES (%s)".formatted(typeSqlName, columns, parameters);
+        // Technically not a proper upsert, but all the values are provided so that nothing is lost
+        this.updateOrInsertTemplate = "INSERT OR REPLACE INTO %s (%s) VALUES (%s)".formatted(
+                typeSqlName, columns, parameters);
     }
 
     /**
@@ -137,119 +174,43 @@ public class SqlGenerator {
         }
     }
 
-    /**
-     * Generates a statement for inserting an object's values in an SQL table
-     *
-     * @param tableName Destination
-     * @param instance  An instance of the target class
-     * @return Statement that inserts the object's values (at the time of call) in an SQL table
-     */
-    public String insertInto(String tableName, Object instance) {
-        if (!type.isInstance(instance)) {
-            logger.error("Invalid instance provided");
-            return null;
-        }
-
-        try {
-            return "INSERT INTO %s (%s) VALUES (%s)".formatted(
-                    tableName,
-                    listToString(fieldMap.values(), SqlField::sqlName),
-                    listToString(fieldMap.values(), f -> f.toValueString(instance))
-            );
-        } catch (IllegalAccessException e) {
-            logger.error(ACCESS_EXCEPTION_MSG, e);
-            return null;
-        }
-    }
-
-    /**
-     * Generates a statement for updating SQL value(s) in one or more rows
-     *
-     * @param tableName     Destination
-     * @param instance      An instance of the target class
-     * @param sqlCondition  SQL condition that updates each applicable row
-     * @param sqlFieldNames If set, only these fields will update. Otherwise, all fields will update.
-     * @return Statement that updates existing SQL rows with the Java object's value(s)
-     */
-    public String updateWhere(String tableName, Object instance, String sqlCondition, String... sqlFieldNames) {
-        Iterable<SqlField> toBeUpdated = getVarargFields(sqlFieldNames);
-        if (toBeUpdated == null)
-            return null;
-
-        try {
-            return "UPDATE %s SET %s WHERE %s".formatted(
-                    tableName,
-                    listToString(toBeUpdated, f -> f.sqlName() + " = " + f.toValueString(instance)),
-                    sqlCondition
-            );
-
-        } catch (IllegalAccessException e) {
-            logger.error(ACCESS_EXCEPTION_MSG, e);
-            return null;
+    private void addIndex(SqlIndex index, List<String> keyColumns) {
+        List<String> columns = new ArrayList<>(keyColumns);
+        // SQLite has no INCLUDE clause, but columns after the key cover queries just the same
+        for (String included : index.include()) {
+            if (!columns.contains(included))
+                columns.add(included);
         }
+        indexes.add(new IndexDefinition(index.name(), index.unique(), columns));
     }
 
     /**
-     * Generates a statement for updating the SQL value(s) for one unique row.
-     * The target class must have a primary key.
+     * Generates statements for creating the secondary indexes declared with {@link SqlIndex}
      *
-     * @param tableName     Destination
-     * @param instance      An instance of the target class
-     * @param sqlFieldNames If set, only these fields will update. Otherwise, all fields will update.
-     * @return Statement that updates the corresponding SQL row with the Java object's values.
-     * Returns null if target class has no primary key.
+     * @param tableName Name of the SQL table to index
+     * @return Statements that create each index, if it doesn't exist yet.
+     * Returns null if an index names a column that doesn't exist.
      */
-    public String updateWherePrimaryKey(String tableName, Object instance, String... sqlFieldNames) {
-        String sqlCondition = primaryKeyCondition(instance);
-        if (sqlCondition == null)
-            return null;
-        return updateWhere(tableName, instance, sqlCondition, sqlFieldNames);
-    }
+    public List<String> createIndexes(String tableName) {
+        List<String> statements = new ArrayList<>();
+        for (IndexDefinition index : indexes) {
+            if (index.columns().isEmpty() || !fieldMap.keySet().containsAll(index.columns())) {
+                logger.error("Index on {} names unknown columns: {}", tableName, index.columns());
+                return null;
+            }
 
-    /**
-     * Generates a statement for adding or updating multiple unique SQL rows.
-     * The target class must have a primary key.
-     *
-     * @param tableName Destination
-     * @param instances instances of the target class
-     * @return Statement that updates or inserts one Java object's values.
-     */
-    public String updateOrInsertMany(String tableName, Iterable<Object> instances) {
-        try {
-            // Technically not a proper upsert, but all the values are provided so that nothing is lost
-            MakeString<Object> toValueSets =
-                    i -> "(%s)".formatted(listToString(fieldMap.values(), f -> f.toValueString(i)));
-            return "INSERT OR REPLACE INTO %s (%s) VALUES %s".formatted(
-                    tableName,
-                    listToString(fieldMap.values(), SqlField::sqlName),
-                    listToString(instances, toValueSets)
-            );
-        } catch (IllegalAccessException e) {
-            logger.error(ACCESS_EXCEPTION_MSG, e);
-            return null;
-        }
-    }
+            String name = index.name();
+            if (name.isEmpty())
+                name = "idx_%s_%s".formatted(tableName, String.join("_", index.columns()));
 
-    /**
-     * Generates a statement for adding or updating a unique SQL row.
-     * The target class must have a primary key.
-     *
-     * @param tableName Destination
-     * @param instance  An instance of the target class
-     * @return Statement that updates or inserts one Java object's values.
-     */
-    public String updateOrInsert(String tableName, Object instance) {
-        try {
-            // Technically not a proper upsert, but all the values are provided so that nothing is lost
-            return "INSERT OR REPLACE INTO %s (%s) VALUES (%s)".formatted(
+            statements.add("CREATE %sINDEX IF NOT EXISTS %s ON %s (%s)".formatted(
+                    index.unique() ? "UNIQUE " : "",
+                    name,
                     tableName,
-                    listToString(fieldMap.values(), SqlField::sqlName),
-                    listToString(fieldMap.values(), f -> f.toValueString(instance))
-            );
-        } catch (IllegalAccessException e) {
-            logger.error(ACCESS_EXCEPTION_MSG, e);
-            return null;
+                    String.join(", ", index.columns())
+            ));
         }
+        return statements;
     }
 
     /**
@@ -277,90 +238,158 @@ public class SqlGenerator {
     }
 
     /**
-     * Generates a statement for selecting field(s) from the SQL row corresponding to the Java object.
+     * Parameterized statement for inserting an object's values in this type's table.
+     * Bind the values with {@link #bindValues(PreparedStatement, Object)}.
+     *
+     * @return Statement that inserts one row
+     */
+    public String insertTemplate() {
+        return insertTemplate;
+    }
+
+    /**
+     * Parameterized statement for adding or updating a unique row in this type's table.
      * The target class must have a primary key.
+     * Bind the values with {@link #bindValues(PreparedStatement, Object)}.
      *
-     * @param tableName Source
-     * @param instance  An instance of the target class
-     * @param sqlFields Fields to retrieve. Retrieves all fields if empty.
-     * @return Statement that retrieves the specified fields corresponding to the Java object
+     * @return Statement that updates or inserts one row
      */
-    public String selectWherePrimaryKey(String tableName, Object instance, String... sqlFields) {
-        String sqlCondition = primaryKeyCondition(instance);
-        if (sqlCondition == null)
-            return null;
-        return selectWhere(tableName, sqlCondition, sqlFields);
+    public String updateOrInsertTemplate() {
+        return updateOrInsertTemplate;
     }
 
     /**
-     * SQL condition for rows with SQL field(s) that must equal Java fields
+     * Parameterized statement for updating SQL value(s) in one or more rows of this type's table.
+     * Bind the values with {@link #bindUpdateWhere(PreparedStatement, Object, String...)}.
      *
-     * @param instance  Acts as the input values.
-     *                  Must have desired field values set.
-     *                  Must be an instance of the target class.
-     * @param sqlFields Fields to match. Matches all fields if empty.
-     * @return SQL condition that is true when Java fields' values (at the time of call) are equal to SQL fields
+     * @param sqlCondition  SQL condition that updates each applicable row. Must not have parameters of its own.
+     * @param sqlFieldNames If set, only these fields will update. Otherwise, all fields will update.
+     * @return Statement that updates existing rows. Returns null if a field name wasn't found.
      */
-    public String matchingFieldsCondition(Object instance, String... sqlFields) {
-        Iterable<SqlField> toMatch = getVarargFields(sqlFields);
-        if (toMatch == null)
+    public String updateWhereTemplate(String sqlCondition, String... sqlFieldNames) {
+        Collection<SqlField> toBeUpdated = getVarargFields(sqlFieldNames);
+        if (toBeUpdated == null)
             return null;
 
-        try {
-            return "(%s) = (%s)".formatted(
-                    listToString(toMatch, SqlField::sqlName),
-                    listToString(toMatch, f -> f.toValueString(instance))
-            );
-        } catch (IllegalAccessException e) {
-            logger.error(ACCESS_EXCEPTION_MSG, e);
-            return null;
-        }
+        return "UPDATE %s SET %s WHERE %s".formatted(
+                typeSqlName,
+                toBeUpdated.stream().map(f -> f.sqlName() + " = ?").collect(Collectors.joining(", ")),
+                sqlCondition
+        );
     }
 
     /**
-     * SQL condition for equal primary keys.
+     * Parameterized statement for updating the SQL value(s) of one unique row in this type's table.
      * The target class must have a primary key.
+     * Bind the values with {@link #bindUpdateWherePrimaryKey(PreparedStatement, Object, String...)}.
      *
-     * @return SQL condition that is true where primary key values are equal.
-     * Return is null if no primary key exists.
+     * @param sqlFieldNames If set, only these fields will update. Otherwise, all fields will update.
+     * @return Statement that updates the row with the bound primary key.
+     * Returns null if the target class has no primary key, or a field name wasn't found.
      */
-    public String primaryKeyCondition(Object instance) {
+    public String updateWherePrimaryKeyTemplate(String... sqlFieldNames) {
         List<SqlField> primaryKeys = getPrimaryKeys();
         if (primaryKeys.isEmpty())
             return null;
+        return updateWhereTemplate(matchingTemplate(primaryKeys), sqlFieldNames);
+    }
 
-        try {
-            return "(%s) = (%s)".formatted(
-                    listToString(primaryKeys, SqlField::sqlName),
-                    listToString(primaryKeys, pk -> pk.toValueString(instance))
-            );
-        } catch (IllegalAccessException e) {
-            logger.error(ACCESS_EXCEPTION_MSG, e);
+    /**
+     * Parameterized statement for selecting the rows of this type's table whose SQL field(s) equal the bound values.
+     * Bind the values with {@link #bindMatchingFields(PreparedStatement, Object, String...)}.
+     *
+     * @param sqlFields Fields to match. Matches all fields if empty.
+     * @return Statement that retrieves all fields of the matching rows. Returns null if a field name wasn't found.
+     */
+    public String selectWhereFieldsMatchTemplate(String... sqlFields) {
+        Collection<SqlField> toMatch = getVarargFields(sqlFields);
+        if (toMatch == null)
             return null;
-        }
+        return "SELECT * FROM %s WHERE %s".formatted(typeSqlName, matchingTemplate(toMatch));
     }
 
-    // TODO: The 'sqlValue' method should belong to the SqlField record,
-    //  but SqlField is in the same file for convenience, so it remains private
+    private static String matchingTemplate(Collection<SqlField> fields) {
+        return "(%s) = (%s)".formatted(
+                fields.stream().map(SqlField::sqlName).collect(Collectors.joining(", ")),
+                String.join(", ", Collections.nCopies(fields.size(), "?"))
+        );
+    }
 
     /**
-     * Converts supported values to their SQL representations
+     * Binds an object's values to the parameters of a template generated by this generator
      *
-     * @param value Any value inheriting a supported type
-     * @return SQL representation, or null if the type is not supported
+     * @param stmt     A statement prepared from {@link #insertTemplate()} or {@link #updateOrInsertTemplate()}
+     * @param instance An instance of the target class
+     * @return False if the object's values couldn't be read
      */
-    public static String sqlValue(Object value) {
-        if (value instanceof Character)
-            value = value.toString();
+    public boolean bindValues(PreparedStatement stmt, Object instance) throws SQLException {
+        return bindFields(stmt, instance, templateFields);
+    }
+
+    /**
+     * Binds an object's values to the parameters of {@link #updateWhereTemplate(String, String...)}
+     *
+     * @param stmt          A statement prepared from the template
+     * @param instance      An instance of the target class
+     * @param sqlFieldNames The same field names the template was generated with
+     * @return False if the object's values couldn't be read, or a field name wasn't found
+     */
+    public boolean bindUpdateWhere(PreparedStatement stmt, Object instance, String... sqlFieldNames)
+            throws SQLException {
+        Collection<SqlField> toBeUpdated = getVarargFields(sqlFieldNames);
+        return toBeUpdated != null && bindFields(stmt, instance, toBeUpdated);
+    }
+
+    /**
+     * Binds an object's values, then its primary key, to the parameters of
+     * {@link #updateWherePrimaryKeyTemplate(String...)}
+     *
+     * @param stmt          A statement prepared from the template
+     * @param instance      An instance of the target class
+     * @param sqlFieldNames The same field names the template was generated with
+     * @return False if the object's values couldn't be read, or a field name wasn't found
+     */
+    public boolean bindUpdateWherePrimaryKey(PreparedStatement stmt, Object instance, String... sqlFieldNames)
+            throws SQLException {
+        Collection<SqlField> toBeUpdated = getVarargFields(sqlFieldNames);
+        if (toBeUpdated == null)
+            return false;
+
+        List<SqlField> parameters = new ArrayList<>(toBeUpdated);
+        parameters.addAll(getPrimaryKeys());
+        return bindFields(stmt, instance, parameters);
+    }
 
-        if (value instanceof Boolean bool) {
-            return bool ? "1" : "0";
-        } else if (value instanceof String str) {
-            return '\'' + str.replace("'", "''") + '\'';
-        } else if (value instanceof Integer || value instanceof Long) {
-            return value.toString();
+    /**
+     * Binds an object's values to the parameters of {@link #selectWhereFieldsMatchTemplate(String...)}
+     *
+     * @param stmt      A statement prepared from the template
+     * @param instance  Acts as the input values. Must have desired field values set.
+     * @param sqlFields The same field names the template was generated with
+     * @return False if the object's values couldn't be read, or a field name wasn't found
+     */
+    public boolean bindMatchingFields(PreparedStatement stmt, Object instance, String... sqlFields)
+            throws SQLException {
+        Collection<SqlField> toMatch = getVarargFields(sqlFields);
+        return toMatch != null && bindFields(stmt, instance, toMatch);
+    }
+
+    private boolean bindFields(PreparedStatement stmt, Object instance, Collection<SqlField> fields)
+            throws SQLException {
+        if (!type.isInstance(instance)) {
+            logger.error("Invalid instance provided");
+            return false;
+        }
+
+        try {
+            int index = 1;
+            for (SqlField field : fields)
+                field.bindValue(stmt, index++, instance);
+            return true;
+        } catch (IllegalAccessException e) {
+            logger.error(ACCESS_EXCEPTION_MSG, e);
+            return false;
         }
-        return null;
     }
 
     /**
@@ -398,7 +427,7 @@ public class SqlGenerator {
      * @param sqlFieldNames SqlFields to retrieve by name. Retrieves all fields if empty.
      * @return An immutable list of fields. Returns null if a field name wasn't found.
      */
-    private Iterable<SqlField> getVarargFields(String... sqlFieldNames) {
+    private Collection<SqlField> getVarargFields(String... sqlFieldNames) {
         if (sqlFieldNames.length == 0)
             return fieldMap.values();
 
@@ -465,8 +494,18 @@ record SqlField(
         return s.toString();
     }
 
-    public String toValueString(Object instance) throws IllegalAccessException {
-        return SqlGenerator.sqlValue(javaField.get(instance));
+    public void bindValue(PreparedStatement stmt, int index, Object instance)
+            throws IllegalAccessException, SQLException {
+        Object value = javaField.get(instance);
+        if (value instanceof Character)
+            value = value.toString();
+        else if (value instanceof Boolean bool)
+            value = bool ? 1 : 0;
+
+        if (value == null)
+            stmt.setNull(index, Types.NULL);
+        else
+            stmt.setObject(index, value);
     }
 
     public void setValue(Object instance, Object value) throws IllegalAccessException {
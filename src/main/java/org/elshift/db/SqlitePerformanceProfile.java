@@ -0,0 +1,182 @@
+package org.elshift.db;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * SQLite settings that trade durability and memory for speed, applied to every connection of a {@link Database}.
+ * <br>
+ * A profile starts from a {@link Preset}, and any setting given explicitly overrides the preset's value.
+ */
+public class SqlitePerformanceProfile {
+    public enum Preset {
+        /**
+         * Leaves every setting at the driver's default.
+         */
+        @SerializedName("driver")
+        DRIVER,
+        /**
+         * Write-ahead logging, fsync at checkpoints only, and a large cache. A crash may lose the last commits,
+         * but never corrupts the database.
+         */
+        @SerializedName("production")
+        PRODUCTION,
+        /**
+         * Write-ahead logging, with every commit synced to disk.
+         */
+        @SerializedName("durable")
+        DURABLE,
+        /**
+         * Write-ahead logging, with the smallest cache and no memory mapping.
+         */
+        @SerializedName("low-memory")
+        LOW_MEMORY
+    }
+
+    public enum JournalMode {
+        DELETE,
+        TRUNCATE,
+        PERSIST,
+        MEMORY,
+        WAL,
+        OFF
+    }
+
+    public enum Synchronous {
+        OFF,
+        NORMAL,
+        FULL,
+        EXTRA
+    }
+
+    public enum TempStore {
+        DEFAULT,
+        FILE,
+        MEMORY
+    }
+
+    private Preset preset;
+    private JournalMode journalMode;
+    private Synchronous synchronous;
+    private Long cacheSizeKib;
+    private Long mmapSizeBytes;
+    private TempStore tempStore;
+    private Long busyTimeoutMs;
+
+    /**
+     * @return A profile that only names a preset, and takes all of its settings from it
+     */
+    public static SqlitePerformanceProfile of(Preset preset) {
+        SqlitePerformanceProfile profile = new SqlitePerformanceProfile();
+        profile.preset = preset;
+        return profile;
+    }
+
+    private static SqlitePerformanceProfile presetValues(Preset preset) {
+        SqlitePerformanceProfile profile = of(preset);
+        switch (preset) {
+            case DRIVER -> {
+            }
+            case PRODUCTION -> {
+                profile.journalMode = JournalMode.WAL;
+                profile.synchronous = Synchronous.NORMAL;
+                profile.cacheSizeKib = 64L * 1024;
+                profile.mmapSizeBytes = 256L * 1024 * 1024;
+                profile.tempStore = TempStore.MEMORY;
+                profile.busyTimeoutMs = 5_000L;
+            }
+            case DURABLE -> {
+                profile.journalMode = JournalMode.WAL;
+                profile.synchronous = Synchronous.FULL;
+                profile.cacheSizeKib = 16L * 1024;
+                profile.tempStore = TempStore.MEMORY;
+                profile.busyTimeoutMs = 5_000L;
+            }
+            case LOW_MEMORY -> {
+                profile.journalMode = JournalMode.WAL;
+                profile.synchronous = Synchronous.NORMAL;
+                profile.cacheSizeKib = 2L * 1024;
+                profile.mmapSizeBytes = 0L;
+                profile.tempStore = TempStore.FILE;
+                profile.busyTimeoutMs = 5_000L;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * @return A copy of this profile, with unset settings taken from its preset ({@link Preset#PRODUCTION} if unset)
+     */
+    public SqlitePerformanceProfile resolve() {
+        SqlitePerformanceProfile resolved = presetValues(preset());
+        if (journalMode != null)
+            resolved.journalMode = journalMode;
+        if (synchronous != null)
+            resolved.synchronous = synchronous;
+        if (cacheSizeKib != null)
+            resolved.cacheSizeKib = cacheSizeKib;
+        if (mmapSizeBytes != null)
+            resolved.mmapSizeBytes = mmapSizeBytes;
+        if (tempStore != null)
+            resolved.tempStore = tempStore;
+        if (busyTimeoutMs != null)
+            resolved.busyTimeoutMs = busyTimeoutMs;
+        return resolved;
+    }
+
+    /**
+     * Applies the profile's settings to a connection
+     *
+     * @param con      Connection to an SQLite database
+     * @param isWriter Whether the connection is the writer. Only the writer changes the journal mode, which is
+     *                 stored in the database file and shared by every connection.
+     */
+    void apply(Connection con, boolean isWriter) throws SQLException {
+        try (Statement pragma = con.createStatement()) {
+            // First, so that the other settings wait for locks held by other connections
+            if (busyTimeoutMs != null)
+                pragma.execute("PRAGMA busy_timeout=" + busyTimeoutMs);
+            if (isWriter && journalMode != null)
+                pragma.execute("PRAGMA journal_mode=" + journalMode.name());
+            if (synchronous != null)
+                pragma.execute("PRAGMA synchronous=" + synchronous.name());
+            // Negative sizes are in KiB rather than pages
+            if (cacheSizeKib != null)
+                pragma.execute("PRAGMA cache_size=" + -cacheSizeKib);
+            if (mmapSizeBytes != null)
+                pragma.execute("PRAGMA mmap_size=" + mmapSizeBytes);
+            if (tempStore != null)
+                pragma.execute("PRAGMA temp_store=" + tempStore.name());
+        }
+    }
+
+    /**
+     * @param con Connection to an SQLite database
+     * @return The settings in effect on the connection, as reported by SQLite
+     */
+    static String describe(Connection con) throws SQLException {
+        StringBuilder s = new StringBuilder();
+        try (Statement pragma = con.createStatement()) {
+            for (String name : new String[]{"journal_mode", "synchronous", "cache_size", "mmap_size", "temp_store",
+                    "busy_timeout"}) {
+                try (ResultSet value = pragma.executeQuery("PRAGMA " + name)) {
+                    if (!s.isEmpty())
+                        s.append(", ");
+                    s.append(name).append('=').append(value.next() ? value.getString(1) : "?");
+                }
+            }
+        }
+        return s.toString();
+    }
+
+    /**
+     * @return The preset the profile starts from
+     */
+    public Preset preset() {
+        return preset != null ? preset : Preset.PRODUCTION;
+    }
+}
@@ -0,0 +1,39 @@
+package org.elshift.db.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A secondary index, created along with the table if it doesn't exist yet.
+ * <br>
+ * On a field, indexes that field. On a type, indexes the given {@link #columns()}, in order.
+ * Either way, {@link #include()} adds columns after the key, so that queries reading only those columns are
+ * answered from the index alone.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.TYPE})
+@Repeatable(SqlIndexes.class)
+public @interface SqlIndex {
+    /**
+     * @return SQL names of the key columns. Only used on types.
+     */
+    String[] columns() default {};
+
+    /**
+     * @return SQL names of extra columns stored in the index, to cover queries that read them
+     */
+    String[] include() default {};
+
+    /**
+     * @return Whether rows must have distinct keys
+     */
+    boolean unique() default false;
+
+    /**
+     * @return Name of the index. Generated from the table and columns if empty.
+     */
+    String name() default "";
+}
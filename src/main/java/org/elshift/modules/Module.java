@@ -1,5 +1,7 @@
 package org.elshift.modules;
 
+import javax.annotation.Nullable;
+
 /**
  * Base module interface.
  */
@@ -13,4 +15,26 @@ public interface Module {
      * @return The help message of this module
      */
     String getHelpMessage();
+
+    /**
+     * @return A summary of the module's background work for /stats, or null if it has none
+     */
+    default @Nullable String getStats() {
+        return null;
+    }
+
+    /**
+     * Warms up the module in the background, in parallel with other modules.
+     * The module's commands are answered with a "warming up" reply until this returns.
+     *
+     * @throws Exception The module failed to start, and its commands will stay unavailable
+     */
+    default void start() throws Exception {
+    }
+
+    /**
+     * Releases the module's resources when the bot shuts down.
+     */
+    default void stop() {
+    }
 }
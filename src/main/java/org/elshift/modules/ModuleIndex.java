@@ -0,0 +1,71 @@
+package org.elshift.modules;
+
+import org.elshift.processor.ModuleIndexProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the module index generated at compile time by {@link ModuleIndexProcessor}.
+ */
+public final class ModuleIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ModuleIndex.class);
+
+    /**
+     * A module class, and its command methods.
+     */
+    public record Entry(Class<?> moduleClass, List<Method> commandMethods) {
+    }
+
+    private ModuleIndex() {
+    }
+
+    /**
+     * @return Every indexed module, or null if the index is missing,
+     * or names a module or command method that no longer exists
+     */
+    public static @Nullable List<Entry> load() {
+        ClassLoader classLoader = ModuleIndex.class.getClassLoader();
+        try (InputStream stream = classLoader.getResourceAsStream(ModuleIndexProcessor.INDEX_PATH)) {
+            if (stream == null)
+                return null;
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            List<Entry> entries = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+
+                if (!line.startsWith("\t")) {
+                    entries.add(new Entry(Class.forName(line, false, classLoader), new ArrayList<>()));
+                    continue;
+                }
+
+                if (entries.isEmpty())
+                    throw new IOException("Command listed before any module");
+
+                Entry module = entries.get(entries.size() - 1);
+                String[] parts = line.substring(1).split(" ");
+                Class<?>[] parameterTypes = new Class<?>[parts.length - 1];
+                for (int i = 1; i < parts.length; ++i)
+                    parameterTypes[i - 1] = Class.forName(parts[i], false, classLoader);
+
+                module.commandMethods().add(module.moduleClass().getDeclaredMethod(parts[0], parameterTypes));
+            }
+            return entries;
+        } catch (IOException | ReflectiveOperationException e) {
+            logger.warn("Failed to read the module index", e);
+            return null;
+        }
+    }
+}
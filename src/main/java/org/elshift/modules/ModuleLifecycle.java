@@ -0,0 +1,83 @@
+package org.elshift.modules;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Starts modules in parallel in the background, and tracks which of them are ready.
+ */
+public final class ModuleLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ModuleLifecycle.class);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Module, CompletableFuture<Void>> startups = new ConcurrentHashMap<>();
+
+    /**
+     * Starts every module without waiting for any of them.
+     *
+     * @param modules Modules to start
+     * @return A future that completes once every module has either started or failed
+     */
+    public CompletableFuture<Void> startAll(@NotNull List<Module> modules) {
+        long begin = System.currentTimeMillis();
+
+        for (Module module : modules) {
+            CompletableFuture<Void> startup = CompletableFuture.runAsync(() -> {
+                long moduleBegin = System.currentTimeMillis();
+                try {
+                    module.start();
+                } catch (Exception e) {
+                    logger.error("Failed to start module {}", module.getName(), e);
+                    throw new IllegalStateException(e);
+                }
+                logger.debug("Started module {} in {}ms", module.getName(), System.currentTimeMillis() - moduleBegin);
+            }, executor);
+            startups.put(module, startup);
+        }
+
+        return CompletableFuture.allOf(startups.values().toArray(CompletableFuture[]::new))
+                .handle((ignored, error) -> {
+                    logger.info("Started {} module(s) in {}ms", modules.size(), System.currentTimeMillis() - begin);
+                    return null;
+                });
+    }
+
+    /**
+     * @return Whether the module has finished starting successfully. Modules that are not managed are always ready.
+     */
+    public boolean isReady(@NotNull Module module) {
+        CompletableFuture<Void> startup = startups.get(module);
+        return startup == null || (startup.isDone() && !startup.isCompletedExceptionally());
+    }
+
+    /**
+     * @return Whether the module failed to start, and will never become ready
+     */
+    public boolean hasFailed(@NotNull Module module) {
+        CompletableFuture<Void> startup = startups.get(module);
+        return startup != null && startup.isCompletedExceptionally();
+    }
+
+    /**
+     * Stops every started module.
+     */
+    public void stopAll() {
+        startups.forEach((module, startup) -> {
+            startup.cancel(false);
+            try {
+                module.stop();
+            } catch (Exception e) {
+                logger.error("Failed to stop module {}", module.getName(), e);
+            }
+        });
+        executor.shutdownNow();
+    }
+}
@@ -5,6 +5,7 @@ import net.dv8tion.jda.api.entities.GuildChannel;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.elshift.modules.Module;
+import org.elshift.util.RestScheduler;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.regex.Matcher;
@@ -33,11 +34,12 @@ public class BloonsCodeModule extends ListenerAdapter implements Module {
         if (code != null) {
             // Only delete the message if we have the permissions to do so
             if (event.getGuild().getSelfMember().hasPermission(channel, Permission.MESSAGE_MANAGE)) {
-                event.getMessage().delete().queue();
+                RestScheduler.get().queue(event.getMessage().delete(),
+                        RestScheduler.Priority.HOUSEKEEPING, "delete:" + channel.getIdLong());
             }
 
-            event.getChannel().sendMessage("%s's bloons code: `%s`"
-                    .formatted(event.getAuthor().getAsMention(), code)).queue();
+            RestScheduler.get().queue(event.getChannel().sendMessage("%s's bloons code: `%s`"
+                    .formatted(event.getAuthor().getAsMention(), code)), RestScheduler.Priority.REPLY, null);
         }
     }
 
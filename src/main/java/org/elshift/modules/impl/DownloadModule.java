@@ -3,6 +3,7 @@ package org.elshift.modules.impl;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.elshift.commands.annotations.Option;
+import org.elshift.commands.annotations.RateLimit;
 import org.elshift.commands.annotations.RunMode;
 import org.elshift.commands.annotations.SlashCommand;
 import org.elshift.config.Config;
@@ -37,14 +38,15 @@ public class DownloadModule extends ListenerAdapter implements Module {
             "(?:[a-zA-Z\\d&=?]+)?/?");// Accept &, =, ? and standard letters/numbers for URL parameters, and trailing slashes.
 
     private static final File downloadsDir = new File(Config.get().downloadDir());
-    private static Path YT_DLP_BIN = Path.of(downloadsDir.toString(), "yt-dlp");
+    private static volatile Path YT_DLP_BIN = Path.of(downloadsDir.toString(), "yt-dlp");
     private static final Path YT_DLP_BIN_LINUX = Path.of("/bin/yt-dlp");
     private static final Path YT_DLP_BIN_WINDOWS = Path.of(downloadsDir.toString(), "yt-dlp.exe");
-    private static boolean hasRequiredDependencies = false;
+    private static volatile boolean hasRequiredDependencies = false;
 
     private static final ConcurrentLinkedQueue<File> removalQueue = new ConcurrentLinkedQueue<>();
 
-    static {
+    @Override
+    public void start() {
         if (!downloadsDir.mkdirs() && !downloadsDir.exists()) {
             logger.error("Failed to create download directory.");
         }
@@ -149,6 +151,8 @@ public class DownloadModule extends ListenerAdapter implements Module {
 
     @SlashCommand(name = "download", description = "Download a video from YouTube, Twitter, Instagram, TikTok, or Reddit")
     @RunMode(RunMode.Mode.Async)
+    @RateLimit(uses = 3, periodSeconds = 60)
+    @RateLimit(uses = 10, periodSeconds = 60, scope = RateLimit.Scope.Guild)
     public void downloadVideo(SlashCommandInteractionEvent event, @Option(name = "url", description = "post url") String url) {
         if (!hasRequiredDependencies) {
             event.reply("Missing dependencies: ffmpeg + yt-dlp. Check log for more info.")
@@ -0,0 +1,135 @@
+package org.elshift.modules.impl;
+
+import net.dv8tion.jda.api.entities.ApplicationInfo;
+import net.dv8tion.jda.api.entities.ApplicationTeam;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import org.elshift.Main;
+import org.elshift.commands.AdmissionControl;
+import org.elshift.commands.CommandHandler;
+import org.elshift.commands.CommandMethod;
+import org.elshift.commands.CommandStats;
+import org.elshift.commands.SlashCommandMethod;
+import org.elshift.commands.annotations.RunMode;
+import org.elshift.commands.annotations.SlashCommand;
+import org.elshift.commands.autocomplete.AutoCompleteCache;
+import org.elshift.config.Config;
+import org.elshift.modules.Module;
+import org.elshift.util.LatencyHistogram;
+import org.elshift.util.RestScheduler;
+
+import java.util.Collection;
+
+public class StatsModule implements Module {
+    private static final int MAX_MESSAGE_LENGTH = 2000;
+
+    // Fetched on first use. The owner of a bot doesn't change while it runs.
+    private volatile ApplicationInfo applicationInfo;
+
+    @SlashCommand(name = "stats", description = "Show command latency and error statistics (bot owner only)")
+    public void stats(SlashCommandInteractionEvent event) {
+        ApplicationInfo info = applicationInfo;
+        if (info != null) {
+            replyStats(event, info);
+            return;
+        }
+
+        event.getJDA().retrieveApplicationInfo().queue(
+                retrieved -> {
+                    applicationInfo = retrieved;
+                    replyStats(event, retrieved);
+                },
+                error -> event.reply("Failed to look up the bot owner.").setEphemeral(true).queue()
+        );
+    }
+
+    private void replyStats(SlashCommandInteractionEvent event, ApplicationInfo info) {
+        if (!isOwner(info, event.getUser())) {
+            event.reply("Only the bot owner can view stats.").setEphemeral(true).queue();
+            return;
+        }
+
+        event.reply(formatStats(Main.getBot().getCommandHandler())).setEphemeral(true).queue();
+    }
+
+    /**
+     * @return Whether the user owns the bot, or is on the team that owns it
+     */
+    private static boolean isOwner(ApplicationInfo info, User user) {
+        ApplicationTeam team = info.getTeam();
+        if (team != null)
+            return team.isMember(user);
+
+        return info.getOwner().getIdLong() == user.getIdLong();
+    }
+
+    private String formatStats(CommandHandler handler) {
+        Collection<String> textPrefixes = Config.get().textPrefixes();
+        String textPrefix = textPrefixes == null || textPrefixes.isEmpty() ? "" : textPrefixes.iterator().next();
+
+        StringBuilder s = new StringBuilder("```\n");
+        s.append("%-16s %7s %6s %23s %23s\n".formatted("command", "calls", "errors", "wait p50/p95/p99 ms", "exec p50/p95/p99 ms"));
+
+        for (CommandMethod cmd : handler.getCommands()) {
+            CommandStats stats = cmd.getStats();
+            long calls = stats.getExecution().getCount();
+            if (calls == 0)
+                continue;
+
+            String name = (cmd instanceof SlashCommandMethod ? "/" : textPrefix) + cmd.getName();
+            String line = "%-16s %7d %6d %23s %23s\n".formatted(
+                    name,
+                    calls,
+                    stats.getErrorCount(),
+                    formatPercentiles(stats.getQueueWait()),
+                    formatPercentiles(stats.getExecution())
+            );
+
+            // Leave room for the footer
+            if (s.length() + line.length() > MAX_MESSAGE_LENGTH - 200)
+                break;
+            s.append(line);
+        }
+        s.append("```");
+
+        AdmissionControl admission = handler.getAdmissionControl();
+        for (RunMode.Mode mode : RunMode.Mode.values()) {
+            s.append("\n%s: %d queued, %d rejected".formatted(
+                    mode, admission.getQueuedCount(mode), admission.getRejectedCount(mode)));
+        }
+        s.append("\nExpired interactions: %d".formatted(admission.getExpiredCount()));
+
+        AutoCompleteCache cache = handler.getAutoCompleteCache();
+        s.append("\nAutocomplete: %d cached, %d refined, %d searched".formatted(
+                cache.getHitCount(), cache.getRefinedCount(), cache.getMissCount()));
+
+        RestScheduler rest = RestScheduler.get();
+        s.append("\nHousekeeping requests: %d queued, %d rate limited bucket(s)".formatted(
+                rest.getQueuedHousekeeping(), rest.getPacedBucketCount()));
+
+        for (Module module : Main.getBot().getActiveModules()) {
+            String moduleStats = module.getStats();
+            if (moduleStats != null)
+                s.append('\n').append(moduleStats);
+        }
+        return s.toString();
+    }
+
+    private static String formatPercentiles(LatencyHistogram histogram) {
+        return "%.1f/%.1f/%.1f".formatted(
+                histogram.getPercentileMicros(50) / 1000.0,
+                histogram.getPercentileMicros(95) / 1000.0,
+                histogram.getPercentileMicros(99) / 1000.0
+        );
+    }
+
+    @Override
+    public String getName() {
+        return "stats";
+    }
+
+    @Override
+    public String getHelpMessage() {
+        return "Shows command latency and error statistics to the bot owner";
+    }
+}
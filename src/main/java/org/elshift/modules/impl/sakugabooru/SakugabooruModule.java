@@ -1,12 +1,13 @@
 package org.elshift.modules.impl.sakugabooru;
 
 import com.google.gson.Gson;
-import com.google.gson.stream.JsonReader;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
+import org.elshift.commands.annotations.AutoComplete;
 import org.elshift.commands.annotations.Option;
+import org.elshift.commands.annotations.RateLimit;
 import org.elshift.commands.annotations.SlashCommand;
 import org.elshift.commands.annotations.TextCommand;
 import org.elshift.config.Config;
@@ -24,35 +25,54 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class SakugabooruModule implements Module {
     // Can be any server running Moebooru (and probably works for most Danbooru instances too)
-    private static final String MOEBOORU_API = "https://sakugabooru.com";
-    private static final int DB_UPDATE_BATCH_SIZE = 500;
-    private static final long LONG_OPERATION_NOTIFY_TIME_MS = 3_000;
-    private static final long TAG_UPDATE_COOLDOWN_MS = 60_000;
+    static final String MOEBOORU_API = "https://sakugabooru.com";
     private static final Logger logger = LoggerFactory.getLogger(SakugabooruModule.class);
 
-    private static long lastTagUpdateMs = 0;
-
-    static {
+    @Override
+    public void start() {
         Database db = Config.get().sqlDatabase();
         if (db.isConnected()) {
             try {
                 db.seed(SakugabooruTag.class);
-                updateLatestTags();
+                // Serve lookups from the existing mirror while new tags download
+                SakugabooruTagIndex.reload();
+                SakugabooruTagSync.get().start();
             } catch (SQLException e) {
                 logger.error("Failed to seed db", e);
             }
         }
     }
 
+    @Override
+    public void stop() {
+        SakugabooruTagSync.get().stop();
+    }
+
+    @Override
+    public String getStats() {
+        SakugabooruTagSync tagSync = SakugabooruTagSync.get();
+        if (tagSync.isSyncing())
+            return "Tag sync: running, %d tags saved".formatted(tagSync.getProgress());
+        if (tagSync.getSyncCount() == 0)
+            return null;
+
+        return "Tag sync: %d tags in %dms, <t:%d:R>, %d/%d failed".formatted(
+                tagSync.getLastSyncTagCount(), tagSync.getLastSyncDurationMs(),
+                tagSync.getLastSyncEndMs() / 1000, tagSync.getFailureCount(), tagSync.getSyncCount());
+    }
+
     @SlashCommand(name = "sakuga", description = "Search Sakugabooru")
-    public void slashSearchSakuga(SlashCommandInteractionEvent event, @Option(name = "tags", required = false) String rawTags) {
+    @RateLimit(uses = 5, periodSeconds = 30)
+    public void slashSearchSakuga(
+            SlashCommandInteractionEvent event,
+            @Option(name = "tags", required = false) @AutoComplete(SakugabooruTagAutoComplete.class) String rawTags
+    ) {
         Set<String> tags = createSimplifiedTags(rawTags);
         try {
             SakugabooruPost[] posts = fetchPosts(tags);
@@ -69,6 +89,7 @@ public class SakugabooruModule implements Module {
     }
 
     @TextCommand(name = "sakuga", description = "Search Sakugabooru", aliases = {"s"})
+    @RateLimit(uses = 5, periodSeconds = 30)
     public void textSearchSakuga(@NotNull MessageReceivedEvent event, ParsedTextCommand parsedText) {
         String args = parsedText.getCmdArgs();
         if (args != null && args.startsWith("tags:"))
@@ -93,9 +114,6 @@ public class SakugabooruModule implements Module {
     private String formatPost(SakugabooruPost post, User searchAuthor, Set<String> searchedTags) {
         List<String> allTags = Arrays.stream(post.getTags().split(" ")).toList();
 
-        if (shouldUpdateTags())
-            updateLatestTags();
-
         String search = formatSearch(searchAuthor, searchedTags);
         String postUrl = ":link: **Post**:       <%s/post/show/%d>".formatted(MOEBOORU_API, post.getId());
         String tags = formatTags(allTags);
@@ -122,7 +140,8 @@ public class SakugabooruModule implements Module {
         if (tagNames == null || tagNames.isEmpty())
             return null;
 
-        String[] artistList = tagNames.stream().filter(SakugabooruModule::isTagArtist).toArray(String[]::new);
+        SakugabooruTagIndex tagIndex = SakugabooruTagIndex.get();
+        String[] artistList = tagNames.stream().filter(tagIndex::isArtist).toArray(String[]::new);
         if (artistList.length == 0)
             return null;
 
@@ -240,96 +259,6 @@ public class SakugabooruModule implements Module {
         }
     }
 
-    /**
-     * Fetches all tags and inserts them into the DB
-     *
-     * @param afterId Fetch all tags that have an id number greater than this
-     * @return False if errors occurred
-     */
-    private static boolean updateTags(int afterId) {
-        lastTagUpdateMs = System.currentTimeMillis();
-
-        try {
-            URL url = new URL("%s/tag.json?limit=0&after_id=%d&order=date".formatted(MOEBOORU_API, afterId));
-            HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-            try (InputStream stream = conn.getInputStream()) {
-                Gson gson = new Gson();
-                JsonReader jsonReader = gson.newJsonReader(new InputStreamReader(stream));
-                Database db = Config.get().sqlDatabase();
-                ArrayList<SakugabooruTag> batch = new ArrayList<>();
-                long lastTime = System.currentTimeMillis();
-                int total = 0;
-
-                jsonReader.beginArray();
-                while (jsonReader.hasNext()) {
-                    ++total;
-                    batch.add(gson.fromJson(jsonReader, SakugabooruTag.class));
-
-                    long newTime = System.currentTimeMillis();
-                    if (newTime - lastTime >= LONG_OPERATION_NOTIFY_TIME_MS) {
-                        lastTime = newTime;
-                        logger.info("Updating... %s tags".formatted(total));
-                    }
-
-                    if (batch.size() >= DB_UPDATE_BATCH_SIZE) {
-                        if (!db.updateOrInsertMany(SakugabooruTag.class, batch))
-                            return false;
-                        batch.clear();
-                    }
-                }
-                jsonReader.endArray();
-                jsonReader.close();
-
-                if (!batch.isEmpty() && !db.updateOrInsertMany(SakugabooruTag.class, batch))
-                    return false;
-            }
-        } catch (IOException | SQLException e) {
-            logger.error("Failed to update tags", e);
-            return false;
-        }
-        return true;
-    }
-
-    /**
-     * Fetches new tags and inserts them into the DB
-     *
-     * @return False if errors occurred
-     */
-    private static boolean updateLatestTags() {
-        try {
-            Database db = Config.get().sqlDatabase();
-            Integer maxId = db.querySimple(Integer.class, "SELECT MAX(id) FROM SakugabooruTag");
-            return updateTags(maxId);
-        } catch (SQLException e) {
-            logger.error("db error", e);
-            return false;
-        }
-    }
-
-    private static boolean shouldUpdateTags() {
-        Database db = Config.get().sqlDatabase();
-        if (!db.isConnected())
-            return false;
-        return System.currentTimeMillis() - lastTagUpdateMs >= TAG_UPDATE_COOLDOWN_MS;
-    }
-
-    private static boolean isTagArtist(String tagName) {
-        Database db = Config.get().sqlDatabase();
-        if (!db.isConnected())
-            return false;
-
-        try {
-            try (PreparedStatement stmt = db.preparedStatement("SELECT type FROM SakugabooruTag WHERE name = ?")) {
-                stmt.setString(1, tagName);
-                Integer tagType = db.querySimple(Integer.class, stmt.executeQuery());
-                return tagType == SakugabooruTag.Type.ARTIST.intValue;
-            }
-        } catch (SQLException e) {
-            logger.error("isTagArtist failed", e);
-            return false;
-        }
-    }
-
     private static String joinNonEmptyStrings(String delimiter, String... strings) {
         return String.join(delimiter, Arrays.stream(strings).filter(
                 s -> s != null && !s.isEmpty()
@@ -0,0 +1,48 @@
+package org.elshift.modules.impl.sakugabooru;
+
+import net.dv8tion.jda.api.interactions.AutoCompleteQuery;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import org.elshift.commands.autocomplete.AutoCompleteProvider;
+
+import java.util.List;
+
+/**
+ * Suggests Sakugabooru tags for the last tag being typed, from the local tag mirror.
+ * <br>
+ * Each suggestion repeats the tags typed before it, so picking one keeps the rest of the search.
+ */
+public class SakugabooruTagAutoComplete implements AutoCompleteProvider {
+    private static final int MAX_CANDIDATES = 25;
+    private static final int MAX_CHOICE_LENGTH = 100;
+
+    @Override
+    public Command.Choice[] getCandidates(AutoCompleteQuery query) {
+        if (query.getType() != OptionType.STRING)
+            return null;
+
+        String input = query.getValue();
+        int tokenStart = input.lastIndexOf(' ') + 1;
+        String typedTags = input.substring(0, tokenStart);
+        String token = input.substring(tokenStart);
+
+        // Keep search operators, such as "-" to exclude or "~" for either, in front of the suggestion
+        String operator = "";
+        if (token.startsWith("-") || token.startsWith("~")) {
+            operator = token.substring(0, 1);
+            token = token.substring(1);
+        }
+
+        // Filters such as "order:score" aren't tags
+        if (token.contains(":"))
+            return new Command.Choice[0];
+
+        List<String> suggestions = SakugabooruTagIndex.get().suggest(token, MAX_CANDIDATES);
+        String prefix = typedTags + operator;
+        return suggestions.stream()
+                .map(tag -> prefix + tag)
+                .filter(choice -> choice.length() <= MAX_CHOICE_LENGTH)
+                .map(choice -> new Command.Choice(choice, choice))
+                .toArray(Command.Choice[]::new);
+    }
+}
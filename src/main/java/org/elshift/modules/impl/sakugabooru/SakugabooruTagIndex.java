@@ -0,0 +1,297 @@
+package org.elshift.modules.impl.sakugabooru;
+
+import org.elshift.commands.autocomplete.FuzzyIndex;
+import org.elshift.config.Config;
+import org.elshift.db.Database;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-optimized, in-memory dictionary of the tags mirrored in the database, for tag lookups and autocomplete
+ * without any database or remote calls.
+ * <br>
+ * Tags are held in order of their post count, so that the most used tags are suggested first. Their types are kept
+ * in a primitive array, and names are found through an open-addressing hash table of positions.
+ * Names are shared with the fuzzy search index instead of being copied.
+ * <br>
+ * The most used tags for each prefix of up to {@value #PRECOMPUTED_PREFIX_LENGTH} characters are found when the
+ * dictionary is built, since those prefixes match so many tags that searching them on every keystroke would be slow.
+ * <br>
+ * The dictionary is immutable, and replaced as a whole when the mirror changes, so readers always see one
+ * consistent version of it.
+ */
+final class SakugabooruTagIndex {
+    private static final Logger logger = LoggerFactory.getLogger(SakugabooruTagIndex.class);
+    private static final int NOT_FOUND = -1;
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 2;
+    // Discord shows at most 25 autocomplete choices
+    private static final int PRECOMPUTED_LIMIT = 25;
+
+    private static volatile SakugabooruTagIndex current = new SakugabooruTagIndex(new String[0], new byte[0]);
+
+    // Positions are in order of post count, so that a lower position means a more used tag
+    private final String[] names;
+    private final byte[] types;
+
+    // Position + 1 of each name by hash, or 0 for an empty slot
+    private final int[] slots;
+    private final int[] positionsByName;
+    // Positions of the most used tags starting with each short prefix, most used first
+    private final Map<String, int[]> mostUsedByPrefix;
+    private final FuzzyIndex fuzzyIndex;
+
+    private SakugabooruTagIndex(String[] names, byte[] types) {
+        this.names = names;
+        this.types = types;
+
+        this.slots = new int[Integer.highestOneBit(Math.max(names.length, 1) * 2) * 2];
+        for (int i = 0; i < names.length; ++i) {
+            int slot = findSlot(names[i]);
+            // Names are unique in the mirror, but never let a duplicate hide the more used tag
+            if (slots[slot] == 0)
+                slots[slot] = i + 1;
+        }
+
+        Integer[] positions = new Integer[names.length];
+        for (int i = 0; i < positions.length; ++i)
+            positions[i] = i;
+        Arrays.sort(positions, Comparator.comparing((Integer i) -> names[i]));
+        this.positionsByName = Arrays.stream(positions).mapToInt(Integer::intValue).toArray();
+        this.mostUsedByPrefix = mostUsedByPrefix(names);
+
+        this.fuzzyIndex = new FuzzyIndex(Arrays.asList(names));
+    }
+
+    /**
+     * @return The latest dictionary
+     */
+    static SakugabooruTagIndex get() {
+        return current;
+    }
+
+    /**
+     * Rebuilds the dictionary from the database.
+     */
+    static void reload() {
+        Database db = Config.get().sqlDatabase();
+        if (!db.isConnected())
+            return;
+
+        List<String> names = new ArrayList<>();
+        ByteArray types = new ByteArray();
+        try {
+            db.read(con -> {
+                try (PreparedStatement stmt = con.prepareStatement(
+                        "SELECT name, type FROM SakugabooruTag WHERE name IS NOT NULL ORDER BY count DESC, id");
+                     ResultSet result = stmt.executeQuery()) {
+                    while (result.next()) {
+                        names.add(result.getString(1).toLowerCase(Locale.ROOT));
+                        types.add((byte) result.getInt(2));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            logger.error("Failed to load tags", e);
+            return;
+        }
+
+        current = new SakugabooruTagIndex(names.toArray(new String[0]), types.toArray());
+        logger.info("Indexed {} tags", names.size());
+    }
+
+    /**
+     * @return The positions of the most used tags starting with each prefix of up to
+     * {@value #PRECOMPUTED_PREFIX_LENGTH} characters, most used first
+     */
+    private static Map<String, int[]> mostUsedByPrefix(String[] names) {
+        Map<String, int[]> tops = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        // Positions are visited most used first, so each prefix keeps the first tags it sees
+        for (int position = 0; position < names.length; ++position) {
+            String name = names[position];
+            for (int length = 1; length <= Math.min(PRECOMPUTED_PREFIX_LENGTH, name.length()); ++length) {
+                String prefix = name.substring(0, length);
+                int size = sizes.getOrDefault(prefix, 0);
+                if (size == PRECOMPUTED_LIMIT)
+                    continue;
+
+                tops.computeIfAbsent(prefix, ignored -> new int[PRECOMPUTED_LIMIT])[size] = position;
+                sizes.put(prefix, size + 1);
+            }
+        }
+
+        tops.replaceAll((prefix, top) -> Arrays.copyOf(top, sizes.get(prefix)));
+        return tops;
+    }
+
+    /**
+     * A growable array of bytes, to load a column without boxing.
+     */
+    private static final class ByteArray {
+        private byte[] values = new byte[1024];
+        private int size;
+
+        private void add(byte value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        private byte[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * @return The slot holding the name, or the empty slot where it would go
+     */
+    private int findSlot(String name) {
+        int mask = slots.length - 1;
+        int hash = name.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (slots[slot] != 0 && !names[slots[slot] - 1].equals(name))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private int positionOf(String name) {
+        return slots[findSlot(name)] - 1;
+    }
+
+    /**
+     * @return The number of tags
+     */
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * @param name A lowercase tag name
+     * @return Whether the tag is known and is an artist
+     */
+    boolean isArtist(String name) {
+        int position = positionOf(name);
+        return position != NOT_FOUND && types[position] == SakugabooruTag.Type.ARTIST.intValue;
+    }
+
+    /**
+     * Suggests tags for a partially typed tag.
+     *
+     * @param partial The start of a tag, or a misspelled tag
+     * @param limit   The maximum number of suggestions
+     * @return Tags starting with the text, most used first, followed by similarly spelled tags
+     */
+    List<String> suggest(String partial, int limit) {
+        String search = partial.toLowerCase(Locale.ROOT);
+        if (search.isEmpty())
+            return Arrays.asList(names).subList(0, Math.min(limit, names.length));
+
+        List<String> suggestions = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        for (int position : mostUsedStartingWith(search, limit)) {
+            suggestions.add(names[position]);
+            seen.add(names[position]);
+        }
+
+        if (suggestions.size() < limit) {
+            for (FuzzyIndex.Match match : fuzzyIndex.fuzzy(search, limit)) {
+                if (suggestions.size() == limit)
+                    break;
+                if (seen.add(match.value()))
+                    suggestions.add(match.value());
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * @return The positions of the most used tags starting with the text, most used first
+     */
+    private int[] mostUsedStartingWith(String search, int limit) {
+        if (search.length() <= PRECOMPUTED_PREFIX_LENGTH && limit <= PRECOMPUTED_LIMIT) {
+            int[] top = mostUsedByPrefix.getOrDefault(search, new int[0]);
+            return top.length <= limit ? top.clone() : Arrays.copyOf(top, limit);
+        }
+
+        int start = lowerBound(search);
+        int end = lowerBound(search + Character.MAX_VALUE);
+
+        // A max-heap of the lowest positions seen, with the highest at the root
+        int[] best = new int[Math.max(0, Math.min(limit, end - start))];
+        if (best.length == 0)
+            return best;
+
+        int size = 0;
+        for (int i = start; i < end; ++i) {
+            int position = positionsByName[i];
+            if (size < best.length) {
+                best[size] = position;
+                siftUp(best, size++);
+            } else if (position < best[0]) {
+                best[0] = position;
+                siftDown(best, size);
+            }
+        }
+
+        Arrays.sort(best);
+        return best;
+    }
+
+    private static void siftUp(int[] heap, int index) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= value)
+                break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int size) {
+        int value = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && heap[child + 1] > heap[child])
+                ++child;
+            if (heap[child] <= value)
+                break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    /**
+     * @return The first index into {@link #positionsByName} whose name is not less than the text
+     */
+    private int lowerBound(String search) {
+        int low = 0, high = positionsByName.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[positionsByName[mid]].compareTo(search) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,279 @@
+package org.elshift.modules.impl.sakugabooru;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import org.elshift.config.Config;
+import org.elshift.db.Database;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mirrors new Sakugabooru tags into the database in the background, so that commands never wait for a sync.
+ * <br>
+ * Syncs run on their own thread, at most one at a time, and are spaced by a randomly jittered interval so that
+ * several bots sharing a host don't all hit Sakugabooru at the same moment.
+ */
+public final class SakugabooruTagSync {
+    private static final Logger logger = LoggerFactory.getLogger(SakugabooruTagSync.class);
+    private static final SakugabooruTagSync instance = new SakugabooruTagSync();
+
+    private static final int DB_UPDATE_BATCH_SIZE = 500;
+    // Tags are parsed into chunks of this size, and each chunk is written in one transaction
+    private static final int DB_TRANSACTION_SIZE = 10_000;
+    private static final long LONG_OPERATION_NOTIFY_TIME_MS = 3_000;
+    // A stalled connection fails the sync, instead of holding the sync thread forever
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+    private static final long SYNC_INTERVAL_MS = 60_000;
+    // Each interval is randomly lengthened or shortened by up to this fraction of it
+    private static final double SYNC_JITTER = 0.2;
+
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private final AtomicInteger progress = new AtomicInteger();
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private volatile long lastSyncEndMs;
+    private volatile long lastSyncDurationMs;
+    private volatile int lastSyncTagCount;
+
+    private ScheduledExecutorService executor;
+
+    private SakugabooruTagSync() {
+    }
+
+    public static SakugabooruTagSync get() {
+        return instance;
+    }
+
+    /**
+     * Starts syncing right away, then periodically until {@link #stop()}.
+     */
+    synchronized void start() {
+        if (executor != null)
+            return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sakugabooru-tag-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::syncAndReschedule);
+    }
+
+    /**
+     * Stops syncing. A sync in progress is interrupted between transactions.
+     */
+    synchronized void stop() {
+        if (executor == null)
+            return;
+
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    private void syncAndReschedule() {
+        try {
+            sync();
+        } finally {
+            schedule();
+        }
+    }
+
+    private synchronized void schedule() {
+        if (executor == null || executor.isShutdown())
+            return;
+
+        double jitter = ThreadLocalRandom.current().nextDouble(-SYNC_JITTER, SYNC_JITTER);
+        long delayMs = (long) (SYNC_INTERVAL_MS * (1 + jitter));
+        executor.schedule(this::syncAndReschedule, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fetches new tags and inserts them into the DB, unless a sync is already running.
+     *
+     * @return False if errors occurred, or another sync was running
+     */
+    boolean sync() {
+        if (!Config.get().sqlDatabase().isConnected())
+            return false;
+
+        if (!syncing.compareAndSet(false, true))
+            return false;
+
+        long begin = System.currentTimeMillis();
+        progress.set(0);
+        try {
+            boolean success;
+            try {
+                success = updateLatestTags();
+            } catch (RuntimeException e) {
+                // Such as malformed JSON, which must not end the periodic sync
+                logger.error("Failed to sync tags", e);
+                success = false;
+            }
+
+            if (!success)
+                failureCount.incrementAndGet();
+            return success;
+        } finally {
+            lastSyncTagCount = progress.get();
+            lastSyncDurationMs = System.currentTimeMillis() - begin;
+            lastSyncEndMs = System.currentTimeMillis();
+            syncCount.incrementAndGet();
+            syncing.set(false);
+        }
+    }
+
+    /**
+     * Fetches new tags and inserts them into the DB
+     *
+     * @return False if errors occurred
+     */
+    private boolean updateLatestTags() {
+        try {
+            Database db = Config.get().sqlDatabase();
+            Integer maxId = db.querySimple(Integer.class, "SELECT MAX(id) FROM SakugabooruTag");
+            return updateTags(maxId != null ? maxId : 0);
+        } catch (SQLException e) {
+            logger.error("db error", e);
+            return false;
+        }
+    }
+
+    /**
+     * Fetches all tags and inserts them into the DB
+     *
+     * @param afterId Fetch all tags that have an id number greater than this
+     * @return False if errors occurred
+     */
+    private boolean updateTags(int afterId) {
+        try {
+            URL url = new URL("%s/tag.json?limit=0&after_id=%d&order=date".formatted(
+                    SakugabooruModule.MOEBOORU_API, afterId));
+            HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            try (InputStream stream = conn.getInputStream()) {
+                Gson gson = new Gson();
+                JsonReader jsonReader = gson.newJsonReader(new InputStreamReader(stream));
+                Database db = Config.get().sqlDatabase();
+                ArrayList<SakugabooruTag> chunk = new ArrayList<>();
+                long lastTime = System.currentTimeMillis();
+                int total = 0;
+
+                jsonReader.beginArray();
+                while (jsonReader.hasNext()) {
+                    ++total;
+                    chunk.add(gson.fromJson(jsonReader, SakugabooruTag.class));
+
+                    long newTime = System.currentTimeMillis();
+                    if (newTime - lastTime >= LONG_OPERATION_NOTIFY_TIME_MS) {
+                        lastTime = newTime;
+                        logger.info("Updating... %s tags".formatted(total));
+                    }
+
+                    if (chunk.size() >= DB_TRANSACTION_SIZE) {
+                        if (Thread.currentThread().isInterrupted())
+                            return false;
+                        saveTags(db, chunk);
+                        chunk.clear();
+                    }
+                }
+                jsonReader.endArray();
+                jsonReader.close();
+
+                if (!chunk.isEmpty())
+                    saveTags(db, chunk);
+
+                if (total > 0)
+                    SakugabooruTagIndex.reload();
+            }
+        } catch (IOException | SQLException e) {
+            logger.error("Failed to update tags", e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes tags in batches, all in one transaction
+     *
+     * @throws SQLException If any batch failed, in which case none of the tags are written
+     */
+    private void saveTags(Database db, List<SakugabooruTag> tags) throws SQLException {
+        db.inTransaction(con -> {
+            for (int start = 0; start < tags.size(); start += DB_UPDATE_BATCH_SIZE) {
+                List<SakugabooruTag> batch = tags.subList(start, Math.min(start + DB_UPDATE_BATCH_SIZE, tags.size()));
+                if (!db.updateOrInsertMany(SakugabooruTag.class, batch))
+                    throw new SQLException("Failed to write a batch of tags");
+            }
+            return null;
+        });
+        progress.addAndGet(tags.size());
+    }
+
+    /**
+     * @return Whether a sync is running
+     */
+    public boolean isSyncing() {
+        return syncing.get();
+    }
+
+    /**
+     * @return The number of tags saved so far by the running sync, or by the last one
+     */
+    public int getProgress() {
+        return progress.get();
+    }
+
+    /**
+     * @return When the last sync ended, in epoch milliseconds, or 0 if none has
+     */
+    public long getLastSyncEndMs() {
+        return lastSyncEndMs;
+    }
+
+    /**
+     * @return How long the last sync took, in milliseconds
+     */
+    public long getLastSyncDurationMs() {
+        return lastSyncDurationMs;
+    }
+
+    /**
+     * @return The number of tags saved by the last sync
+     */
+    public int getLastSyncTagCount() {
+        return lastSyncTagCount;
+    }
+
+    /**
+     * @return The number of finished syncs
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * @return The number of syncs that failed
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+}
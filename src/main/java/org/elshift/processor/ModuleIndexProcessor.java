@@ -0,0 +1,173 @@
+package org.elshift.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Writes an index of every module and its command methods at compile time,
+ * so the bot doesn't need to scan the classpath and reflect over every method when it starts.
+ * <br>
+ * The index has one line per module (its binary class name),
+ * followed by one tab-indented line per command method: the method name, then its parameters' binary class names.
+ * <br>
+ * An incremental build only hands the processor the classes it recompiles, so modules listed in the previous index
+ * are carried over, re-read from their compiled classes, unless they no longer exist.
+ */
+@SupportedAnnotationTypes("*")
+public class ModuleIndexProcessor extends AbstractProcessor {
+    public static final String INDEX_PATH = "META-INF/hellobot/modules.idx";
+
+    private static final String MODULE_PACKAGE = "org.elshift.modules";
+    private static final String MODULE_INTERFACE = "org.elshift.modules.Module";
+    private static final Set<String> COMMAND_ANNOTATIONS = Set.of(
+            "org.elshift.commands.annotations.SlashCommand",
+            "org.elshift.commands.annotations.TextCommand"
+    );
+
+    private final Map<String, List<String>> modules = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+
+        for (Element element : roundEnv.getRootElements()) {
+            if (element.getKind() != ElementKind.CLASS)
+                continue;
+
+            TypeElement type = (TypeElement) element;
+            List<String> commands = describeModule(type);
+            if (commands != null)
+                modules.put(binaryName(type), commands);
+        }
+        return false;
+    }
+
+    /**
+     * @return The module's command methods, or null if the type is not a module
+     */
+    private List<String> describeModule(TypeElement type) {
+        TypeElement moduleInterface = processingEnv.getElementUtils().getTypeElement(MODULE_INTERFACE);
+        if (moduleInterface == null || type.getModifiers().contains(Modifier.ABSTRACT))
+            return null;
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        if (!packageName.startsWith(MODULE_PACKAGE))
+            return null;
+
+        Types types = processingEnv.getTypeUtils();
+        if (!types.isAssignable(types.erasure(type.asType()), types.erasure(moduleInterface.asType())))
+            return null;
+
+        List<String> commands = new ArrayList<>();
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.METHOD && isCommand(member))
+                commands.add(describeMethod((ExecutableElement) member));
+        }
+        return commands;
+    }
+
+    /**
+     * Adds the modules of the previous index that were not compiled this time, if they still exist
+     */
+    private void mergePreviousIndex() {
+        List<String> previousModules = new ArrayList<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_PATH);
+            try (Reader reader = file.openReader(true); BufferedReader lines = new BufferedReader(reader)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (!line.isBlank() && !line.startsWith("\t"))
+                        previousModules.add(line);
+                }
+            }
+        } catch (IOException e) {
+            return; // No previous index, as in a clean build
+        }
+
+        for (String moduleName : previousModules) {
+            if (modules.containsKey(moduleName))
+                continue;
+
+            // Modules are top-level classes, whose binary and canonical names are the same
+            TypeElement type = processingEnv.getElementUtils().getTypeElement(moduleName);
+            List<String> commands = type != null ? describeModule(type) : null;
+            if (commands != null)
+                modules.put(moduleName, commands);
+        }
+    }
+
+    private static boolean isCommand(Element method) {
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (COMMAND_ANNOTATIONS.contains(annotationType.getQualifiedName().toString()))
+                return true;
+        }
+        return false;
+    }
+
+    private String describeMethod(ExecutableElement method) {
+        StringBuilder s = new StringBuilder(method.getSimpleName());
+        for (VariableElement parameter : method.getParameters())
+            s.append(' ').append(binaryName(parameter.asType()));
+        return s.toString();
+    }
+
+    private String binaryName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if (erased.getKind() == TypeKind.DECLARED)
+            return binaryName((TypeElement) ((DeclaredType) erased).asElement());
+        return erased.toString(); // Primitives and arrays aren't valid command parameters anyway
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void writeIndex() {
+        mergePreviousIndex();
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_PATH);
+            try (Writer writer = file.openWriter()) {
+                for (Map.Entry<String, List<String>> module : modules.entrySet()) {
+                    writer.write(module.getKey());
+                    writer.write('\n');
+                    for (String command : module.getValue()) {
+                        writer.write('\t');
+                        writer.write(command);
+                        writer.write('\n');
+                    }
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write module index: " + e);
+        }
+    }
+}
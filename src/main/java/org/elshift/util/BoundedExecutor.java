@@ -0,0 +1,74 @@
+package org.elshift.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs at most a fixed number of tasks at once on another executor, queueing the rest in submission order.
+ * <br>
+ * Queued tasks wait in memory rather than on a thread, so a burst never ties up more threads than the limit,
+ * even on an unbounded pool of platform threads.
+ */
+public final class BoundedExecutor implements Executor {
+    private static final Logger logger = LoggerFactory.getLogger(BoundedExecutor.class);
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param executor Executor that runs the tasks
+     * @param limit    Maximum number of tasks running at once
+     */
+    public BoundedExecutor(@NotNull Executor executor, int limit) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("limit must be positive");
+
+        this.executor = executor;
+        this.permits = new Semaphore(limit);
+    }
+
+    /**
+     * Queues a task behind every other task waiting for a permit.
+     *
+     * @param task Task to run
+     */
+    @Override
+    public void execute(@NotNull Runnable task) {
+        pending.add(task);
+        drain();
+    }
+
+    /**
+     * Starts queued tasks for as long as permits are free.
+     * <br>
+     * Both submitters and finishing tasks drain, after adding a task or releasing a permit respectively,
+     * so a task is never left queued while a permit is free.
+     */
+    private void drain() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            Runnable task = pending.poll();
+            if (task == null) {
+                permits.release();
+                continue;
+            }
+
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    logger.error("Uncaught exception in bounded task", t);
+                } finally {
+                    permits.release();
+                    drain();
+                }
+            });
+        }
+    }
+}
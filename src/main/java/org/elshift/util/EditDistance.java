@@ -0,0 +1,204 @@
+package org.elshift.util;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Case-insensitive Levenshtein distance, for scoring many candidates against one query.
+ * <br>
+ * Queries of up to 64 characters use Myers' bit-parallel algorithm, in Hyyro's formulation, which handles a whole
+ * column of the distance matrix in a few word operations. Longer queries fall back to the usual dynamic program.
+ * Either way, computation stops as soon as the distance is known to exceed the given bound.
+ * <br>
+ * Characters are case-folded one at a time, and all working memory is kept per thread, so scoring allocates nothing.
+ * The query's bit masks are kept between calls, so scoring candidates against the same query only builds them once.
+ */
+public final class EditDistance {
+    private static final int WORD_SIZE = Long.SIZE;
+    private static final int ASCII = 128;
+
+    private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Working memory of one thread.
+     */
+    private static final class Scratch {
+        // The query the masks below were built for
+        private final char[] query = new char[WORD_SIZE];
+        private int queryLength = -1;
+
+        // For each character, the positions in the query where it occurs
+        private final long[] asciiMasks = new long[ASCII];
+        private final char[] otherChars = new char[WORD_SIZE];
+        private final long[] otherMasks = new long[WORD_SIZE];
+        private int otherCount;
+
+        private int[] row = new int[WORD_SIZE + 1];
+
+        private boolean isCompiled(CharSequence s) {
+            if (queryLength != s.length())
+                return false;
+            for (int i = 0; i < queryLength; ++i) {
+                if (query[i] != fold(s.charAt(i)))
+                    return false;
+            }
+            return true;
+        }
+
+        private void compile(CharSequence s) {
+            for (int i = 0; i < queryLength; ++i) {
+                if (query[i] < ASCII)
+                    asciiMasks[query[i]] = 0;
+            }
+            otherCount = 0;
+
+            queryLength = s.length();
+            for (int i = 0; i < queryLength; ++i) {
+                char c = fold(s.charAt(i));
+                query[i] = c;
+                if (c < ASCII) {
+                    asciiMasks[c] |= 1L << i;
+                    continue;
+                }
+
+                int slot = indexOfOther(c);
+                if (slot < 0) {
+                    slot = otherCount++;
+                    otherChars[slot] = c;
+                    otherMasks[slot] = 0;
+                }
+                otherMasks[slot] |= 1L << i;
+            }
+        }
+
+        private long maskOf(char c) {
+            if (c < ASCII)
+                return asciiMasks[c];
+            int slot = indexOfOther(c);
+            return slot < 0 ? 0 : otherMasks[slot];
+        }
+
+        private int indexOfOther(char c) {
+            for (int i = 0; i < otherCount; ++i) {
+                if (otherChars[i] == c)
+                    return i;
+            }
+            return -1;
+        }
+
+        private int[] row(int length) {
+            if (row.length < length)
+                row = new int[Math.max(length, row.length * 2)];
+            return row;
+        }
+    }
+
+    private EditDistance() {
+    }
+
+    /**
+     * @param query     The string that is compared with many candidates
+     * @param candidate The string to score
+     * @return The case-insensitive edit distance between the strings
+     */
+    public static int distance(@NotNull CharSequence query, @NotNull CharSequence candidate) {
+        return distance(query, candidate, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * @param query       The string that is compared with many candidates
+     * @param candidate   The string to score
+     * @param maxDistance The largest distance of interest
+     * @return The case-insensitive edit distance between the strings, or {@code maxDistance + 1} if it is larger
+     * than {@code maxDistance}
+     */
+    public static int distance(@NotNull CharSequence query, @NotNull CharSequence candidate, int maxDistance) {
+        // Every extra character takes at least one edit
+        if (Math.abs(query.length() - candidate.length()) > maxDistance)
+            return maxDistance + 1;
+
+        if (query.length() == 0)
+            return candidate.length();
+
+        Scratch s = scratch.get();
+        if (query.length() <= WORD_SIZE)
+            return bitParallel(s, query, candidate, maxDistance);
+
+        // The distance is symmetric, so the candidate can be the bit-parallel pattern when it is the short one
+        if (candidate.length() <= WORD_SIZE)
+            return bitParallel(s, candidate, query, maxDistance);
+
+        return dynamicProgram(s, query, candidate, maxDistance);
+    }
+
+    private static int bitParallel(Scratch s, CharSequence pattern, CharSequence text, int maxDistance) {
+        if (!s.isCompiled(pattern))
+            s.compile(pattern);
+
+        int m = pattern.length();
+        int n = text.length();
+        long lastBit = 1L << (m - 1);
+
+        long positiveVertical = m == WORD_SIZE ? -1L : (1L << m) - 1;
+        long negativeVertical = 0;
+        int score = m;
+
+        for (int j = 0; j < n; ++j) {
+            long eq = s.maskOf(fold(text.charAt(j)));
+            long xv = eq | negativeVertical;
+            long xh = (((eq & positiveVertical) + positiveVertical) ^ positiveVertical) | eq;
+            long positiveHorizontal = negativeVertical | ~(xh | positiveVertical);
+            long negativeHorizontal = positiveVertical & xh;
+
+            if ((positiveHorizontal & lastBit) != 0)
+                ++score;
+            else if ((negativeHorizontal & lastBit) != 0)
+                --score;
+
+            // The distance can drop by at most one per remaining character
+            if (score - (n - j - 1) > maxDistance)
+                return maxDistance + 1;
+
+            // Row 0 of the matrix grows by one per column, so a one is shifted in
+            positiveHorizontal = (positiveHorizontal << 1) | 1;
+            negativeHorizontal <<= 1;
+            positiveVertical = negativeHorizontal | ~(xv | positiveHorizontal);
+            negativeVertical = positiveHorizontal & xv;
+        }
+
+        return score > maxDistance ? maxDistance + 1 : score;
+    }
+
+    private static int dynamicProgram(Scratch s, CharSequence a, CharSequence b, int maxDistance) {
+        int[] costs = s.row(b.length() + 1);
+        for (int j = 0; j <= b.length(); ++j)
+            costs[j] = j;
+
+        for (int i = 1; i <= a.length(); ++i) {
+            char c = fold(a.charAt(i - 1));
+            int diagonal = costs[0];
+            costs[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); ++j) {
+                int above = costs[j];
+                costs[j] = c == fold(b.charAt(j - 1))
+                        ? diagonal
+                        : Math.min(Math.min(diagonal, above), costs[j - 1]) + 1;
+                diagonal = above;
+                rowMin = Math.min(rowMin, costs[j]);
+            }
+
+            // Distances never decrease from one row to the next
+            if (rowMin > maxDistance)
+                return maxDistance + 1;
+        }
+
+        int distance = costs[b.length()];
+        return distance > maxDistance ? maxDistance + 1 : distance;
+    }
+
+    private static char fold(char c) {
+        if (c < ASCII)
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -0,0 +1,76 @@
+package org.elshift.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks with the same key one at a time, in submission order, while tasks with different keys run in parallel.
+ * <br>
+ * Keys are hashed onto a fixed number of lock-free stripes, so memory stays bounded no matter how many keys exist,
+ * and no thread is ever dedicated to a key. Keys that share a stripe are ordered with each other as well.
+ */
+public final class KeyedSerialExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+    private final Executor executor;
+    private final Stripe[] stripes;
+
+    /**
+     * @param executor    Executor that runs each stripe's tasks. Should have roughly one thread per core.
+     * @param stripeCount Number of stripes. More stripes means fewer unrelated keys wait on each other.
+     */
+    public KeyedSerialExecutor(@NotNull Executor executor, int stripeCount) {
+        if (stripeCount <= 0)
+            throw new IllegalArgumentException("stripeCount must be positive");
+
+        this.executor = executor;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; ++i)
+            stripes[i] = new Stripe();
+    }
+
+    /**
+     * Queues a task behind every other task previously submitted with the same key.
+     *
+     * @param key  Ordering key, such as a guild or channel ID
+     * @param task Task to run
+     */
+    public void execute(long key, @NotNull Runnable task) {
+        Stripe stripe = stripes[stripeIndex(key)];
+        stripe.tasks.add(task);
+
+        // Only the submitter that moves the stripe from idle to busy schedules a drain
+        if (stripe.pending.getAndIncrement() == 0)
+            executor.execute(stripe);
+    }
+
+    private int stripeIndex(long key) {
+        int hash = Long.hashCode(key);
+        hash ^= hash >>> 16; // Spread the high bits into the low bits
+        return Math.floorMod(hash, stripes.length);
+    }
+
+    private static final class Stripe implements Runnable {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        @Override
+        public void run() {
+            do {
+                Runnable task = tasks.poll();
+                try {
+                    if (task != null)
+                        task.run();
+                } catch (Throwable t) {
+                    logger.error("Uncaught exception in serial task", t);
+                }
+            } while (pending.decrementAndGet() > 0);
+        }
+    }
+}
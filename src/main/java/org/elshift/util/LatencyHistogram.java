@@ -0,0 +1,85 @@
+package org.elshift.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets.
+ * <br>
+ * Durations are recorded in microseconds. Below {@value #LINEAR_LIMIT}us each microsecond has its own bucket;
+ * above that, every power of two is split into {@value #SUB_BUCKETS} buckets, so percentiles are accurate
+ * to about 3%. Recording is a single atomic increment, so any number of threads can record at once.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BITS = SUB_BUCKET_BITS + 1;
+    private static final int LINEAR_LIMIT = 1 << LINEAR_BITS;
+    private static final int MAX_BITS = 40; // ~12 days in microseconds
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_BITS - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * @param nanos Duration to record, in nanoseconds
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketIndex(TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    /**
+     * @return The number of recorded durations
+     */
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+            total += counts.get(i);
+        return total;
+    }
+
+    /**
+     * @param percentile Percentile to compute, from 0 to 100
+     * @return The duration at the percentile, in microseconds. 0 if nothing was recorded.
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return bucketUpperBound(i);
+        }
+        return MAX_VALUE;
+    }
+
+    private static int bucketIndex(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+        if (value < LINEAR_LIMIT)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT)
+            return index;
+
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_BITS;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
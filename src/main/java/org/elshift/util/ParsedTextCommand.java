@@ -1,9 +1,13 @@
 package org.elshift.util;
 
 import org.elshift.config.Config;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.Collection;
+import javax.annotation.Nullable;
 
+/**
+ * A message split into its command name and arguments. Parse a message once and pass it along.
+ */
 public class ParsedTextCommand {
     private final String rawText;
     private final boolean hasPrefix;
@@ -11,22 +15,14 @@ public class ParsedTextCommand {
     private String cmdArgs = null;
 
     public ParsedTextCommand(String text) {
-        Collection<String> textPrefixes = Config.get().textPrefixes();
+        this(text, Config.get().textPrefixTrie().match(text));
+    }
 
+    private ParsedTextCommand(String text, int prefixLength) {
         rawText = text;
-        String foundPrefix = null;
-        if (textPrefixes != null && !textPrefixes.isEmpty()) {
-            for (String prefix : textPrefixes) {
-                if (text.startsWith(prefix)) {
-                    foundPrefix = prefix;
-                    break;
-                }
-            }
-        }
-
-        hasPrefix = foundPrefix != null;
+        hasPrefix = prefixLength >= 0;
 
-        int cmdNameStart = getTrimmedPos(text, hasPrefix ? foundPrefix.length() : 0);
+        int cmdNameStart = getTrimmedPos(text, hasPrefix ? prefixLength : 0);
         if (cmdNameStart < 0)
             return;
 
@@ -39,6 +35,22 @@ public class ParsedTextCommand {
             cmdArgs = text.substring(cmdArgsStart, getTrimmedEndPos(text));
     }
 
+    /**
+     * Parses text only if it starts with a text command prefix.
+     * Text without a prefix is rejected without allocating anything.
+     *
+     * @param text     Text to parse
+     * @param prefixes Trie of accepted prefixes
+     * @return The parsed command, or null if the text has no prefix
+     */
+    public static @Nullable ParsedTextCommand parsePrefixed(@NotNull String text, @NotNull PrefixTrie prefixes) {
+        int prefixLength = prefixes.match(text);
+        if (prefixLength < 0)
+            return null;
+
+        return new ParsedTextCommand(text, prefixLength);
+    }
+
     public boolean hasPrefix() {
         return hasPrefix;
     }
@@ -0,0 +1,96 @@
+package org.elshift.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable character trie for finding which of a fixed set of prefixes a string starts with.
+ * Text that doesn't start with any prefix is rejected after comparing only its first few characters.
+ */
+public final class PrefixTrie {
+    private static final PrefixTrie EMPTY = new PrefixTrie(new Node());
+
+    private final Node root;
+
+    private PrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @param prefixes The prefixes to search for. Empty and null prefixes are ignored.
+     * @return A trie that matches the given prefixes
+     */
+    public static @NotNull PrefixTrie of(Collection<String> prefixes) {
+        if (prefixes == null || prefixes.isEmpty())
+            return EMPTY;
+
+        Node root = new Node();
+        for (String prefix : prefixes) {
+            if (prefix == null || prefix.isEmpty())
+                continue;
+
+            Node node = root;
+            for (int i = 0; i < prefix.length(); ++i)
+                node = node.getOrAddChild(prefix.charAt(i));
+            node.terminal = true;
+        }
+        return new PrefixTrie(root);
+    }
+
+    /**
+     * @return Whether this trie has no prefixes to match
+     */
+    public boolean isEmpty() {
+        return root.keys.length == 0;
+    }
+
+    /**
+     * Finds the longest prefix that the text starts with.
+     * Prefixes like { "x", "xy" } will therefore never read "xy test" as "y test".
+     *
+     * @param text Text to search
+     * @return The length of the longest matching prefix, or -1 if none match
+     */
+    public int match(@NotNull CharSequence text) {
+        int longest = -1;
+        Node node = root;
+        for (int i = 0; i < text.length(); ++i) {
+            node = node.getChild(text.charAt(i));
+            if (node == null)
+                break;
+            if (node.terminal)
+                longest = i + 1;
+        }
+        return longest;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private boolean terminal = false;
+
+        private Node getChild(char c) {
+            // Nodes rarely have more than a couple children, so a linear scan beats hashing
+            for (int i = 0; i < keys.length; ++i) {
+                if (keys[i] == c)
+                    return children[i];
+            }
+            return null;
+        }
+
+        private Node getOrAddChild(char c) {
+            Node child = getChild(c);
+            if (child != null)
+                return child;
+
+            child = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            children[children.length - 1] = child;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.elshift.util;
+
+import net.dv8tion.jda.api.requests.RestAction;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Orders outgoing requests so that housekeeping never delays a reply to an interaction.
+ * <br>
+ * Interaction acknowledgements and user-visible replies are sent immediately. Housekeeping, such as deleting
+ * messages or registering commands, waits while any interaction is pending or any reply is in flight, and only
+ * a few housekeeping requests are handed to JDA at once, so its request queues stay short.
+ * <br>
+ * JDA waits out rate limits before sending a request, so a request that takes much longer than usual has hit
+ * its rate limit bucket. Later housekeeping in the same bucket is held back for as long as that wait took,
+ * instead of piling up inside JDA.
+ * <br>
+ * {@link Priority#INTERACTION} and {@link Priority#REPLY} are not ordered against each other: both are handed to
+ * JDA right away, and only differ in what they document. Discord's 3 second deadline for acknowledging an
+ * interaction is not modelled here either. Commands that wait too long in the queue are dropped by
+ * {@code AdmissionControl}, and slow commands are deferred by {@code AutoDeferringSlashCommandEvent}.
+ */
+public final class RestScheduler {
+    /**
+     * How urgent a request is, from most to least.
+     */
+    public enum Priority {
+        /**
+         * The first response to an interaction, which Discord expects within 3 seconds.
+         * Sent right away, like {@link #REPLY}.
+         */
+        INTERACTION,
+        /**
+         * A message that a user is waiting for.
+         */
+        REPLY,
+        /**
+         * Anything that can wait.
+         */
+        HOUSEKEEPING
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(RestScheduler.class);
+    private static final RestScheduler instance = new RestScheduler();
+
+    private static final int MAX_HOUSEKEEPING_IN_FLIGHT = 2;
+    // Housekeeping goes out eventually, even when the bot never stops being busy
+    private static final long MAX_HOLD_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long RATE_LIMITED_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long DRAIN_INTERVAL_MS = 50;
+
+    private record Pending(Consumer<Runnable> send, String bucket, long queuedAt) {
+    }
+
+    private final Queue<Pending> housekeeping = new ConcurrentLinkedQueue<>();
+    private final Map<String, Long> bucketReadyAt = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingInteractions = new AtomicInteger();
+    private final AtomicInteger urgentInFlight = new AtomicInteger();
+    private final AtomicInteger housekeepingInFlight = new AtomicInteger();
+    private final AtomicInteger housekeepingQueued = new AtomicInteger();
+
+    private RestScheduler() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rest-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MS, DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static RestScheduler get() {
+        return instance;
+    }
+
+    /**
+     * Queues a request, with JDA's default callbacks.
+     *
+     * @see #queue(RestAction, Priority, String, Consumer, Consumer)
+     */
+    public <T> void queue(@NotNull RestAction<T> action, @NotNull Priority priority, @Nullable String bucket) {
+        queue(action, priority, bucket, null, null);
+    }
+
+    /**
+     * Queues a request.
+     *
+     * @param action   The request
+     * @param priority How urgent the request is
+     * @param bucket   The rate limit bucket of a housekeeping request, such as {@code "delete:<channel id>"}.
+     *                 Requests to the same route and channel or guild share a bucket on Discord's side.
+     * @param success  Called with the result, or null for JDA's default
+     * @param failure  Called with the error, or null for JDA's default
+     */
+    public <T> void queue(@NotNull RestAction<T> action, @NotNull Priority priority, @Nullable String bucket,
+                          @Nullable Consumer<? super T> success, @Nullable Consumer<? super Throwable> failure) {
+        Consumer<? super T> onSuccess = success != null ? success : RestAction.getDefaultSuccess();
+        Consumer<? super Throwable> onFailure = failure != null ? failure : RestAction.getDefaultFailure();
+
+        if (priority != Priority.HOUSEKEEPING) {
+            urgentInFlight.incrementAndGet();
+            try {
+                action.queue(
+                        result -> {
+                            urgentInFlight.decrementAndGet();
+                            onSuccess.accept(result);
+                        },
+                        error -> {
+                            urgentInFlight.decrementAndGet();
+                            onFailure.accept(error);
+                        }
+                );
+            } catch (RuntimeException e) {
+                urgentInFlight.decrementAndGet();
+                throw e;
+            }
+            return;
+        }
+
+        String key = bucket != null ? bucket : "";
+        Consumer<Runnable> send = done -> {
+            long sentAt = System.nanoTime();
+            action.queue(
+                    result -> {
+                        onSent(key, sentAt, done);
+                        onSuccess.accept(result);
+                    },
+                    error -> {
+                        onSent(key, sentAt, done);
+                        onFailure.accept(error);
+                    }
+            );
+        };
+
+        housekeepingQueued.incrementAndGet();
+        housekeeping.add(new Pending(send, key, System.nanoTime()));
+    }
+
+    /**
+     * Holds back housekeeping until {@link #endInteraction()}, because an interaction is waiting for a reply.
+     */
+    public void beginInteraction() {
+        pendingInteractions.incrementAndGet();
+    }
+
+    /**
+     * Ends a {@link #beginInteraction()}.
+     */
+    public void endInteraction() {
+        pendingInteractions.decrementAndGet();
+    }
+
+    private void onSent(String bucket, long sentAt, Runnable done) {
+        long took = System.nanoTime() - sentAt;
+        if (took > RATE_LIMITED_NANOS) {
+            logger.debug("Housekeeping bucket {} is rate limited, pacing it for {}ms", bucket,
+                    TimeUnit.NANOSECONDS.toMillis(took));
+            bucketReadyAt.put(bucket, System.nanoTime() + took);
+        }
+        done.run();
+    }
+
+    /**
+     * Sends whatever housekeeping may go out now.
+     */
+    private void drain() {
+        if (housekeeping.isEmpty())
+            return;
+
+        try {
+            long now = System.nanoTime();
+            bucketReadyAt.values().removeIf(readyAt -> readyAt - now <= 0);
+
+            boolean busy = pendingInteractions.get() > 0 || urgentInFlight.get() > 0;
+            Iterator<Pending> iterator = housekeeping.iterator();
+            while (iterator.hasNext() && housekeepingInFlight.get() < MAX_HOUSEKEEPING_IN_FLIGHT) {
+                Pending pending = iterator.next();
+
+                // Oldest first, so when the bot is busy, nothing after this has waited long enough either
+                if (busy && now - pending.queuedAt() < MAX_HOLD_NANOS)
+                    break;
+
+                if (bucketReadyAt.containsKey(pending.bucket()))
+                    continue;
+
+                iterator.remove();
+                housekeepingQueued.decrementAndGet();
+                housekeepingInFlight.incrementAndGet();
+                try {
+                    pending.send().accept(housekeepingInFlight::decrementAndGet);
+                } catch (RuntimeException e) {
+                    housekeepingInFlight.decrementAndGet();
+                    logger.error("Failed to send housekeeping request", e);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to send housekeeping requests", e);
+        }
+    }
+
+    /**
+     * @return The number of housekeeping requests waiting to be sent
+     */
+    public int getQueuedHousekeeping() {
+        return housekeepingQueued.get();
+    }
+
+    /**
+     * @return The number of buckets currently paced because they hit a rate limit
+     */
+    public int getPacedBucketCount() {
+        return bucketReadyAt.size();
+    }
+}